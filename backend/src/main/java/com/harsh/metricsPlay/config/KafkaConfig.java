@@ -6,6 +6,7 @@ import java.util.Map;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
@@ -19,8 +20,13 @@ import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
-import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+import com.harsh.metricsPlay.service.kafka.serde.VideoEventDeserializer;
+import com.harsh.metricsPlay.service.kafka.serde.VideoEventSerializer;
 
 @Configuration
 @EnableKafka
@@ -29,8 +35,21 @@ public class KafkaConfig {
     @Value("${spring.kafka.bootstrap-servers:kafka:9092}")
     private String bootstrapServers;
 
+    // Topics whose video events are written in the compact binary format instead of JSON
+    @Value("${kafka.serde.binary-topics:}")
+    private String binaryTopics;
+
+    // How long send() may block a request thread on metadata or a full buffer before the event is journaled instead
+    @Value("${kafka.producer.max-block-ms:1000}")
+    private long maxBlockMs;
+
     public static final String VIDEO_EVENTS_TOPIC = "video-events";
     public static final String REAL_TIME_ANALYTICS_TOPIC = "real-time-analytics";
+    // Polls the persistence consumer could not write, kept for replay instead of being skipped
+    public static final String VIDEO_EVENTS_DLT_TOPIC = VIDEO_EVENTS_TOPIC + "-dlt";
+
+    @Value("${events.persistence.retry-max-elapsed-ms:300000}")
+    private long persistenceRetryMaxElapsedMs;
 
     @Bean
     public NewTopic videoEventsTopic() {
@@ -48,16 +67,27 @@ public class KafkaConfig {
                 .build();
     }
 
+    // Same partition count as video-events, dead-lettered records keep their partition
+    @Bean
+    public NewTopic videoEventsDltTopic() {
+        return TopicBuilder.name(VIDEO_EVENTS_DLT_TOPIC)
+                .partitions(3)
+                .replicas(1)
+                .build();
+    }
+
     @Bean
     public ProducerFactory<String, Object> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, VideoEventSerializer.class);
+        configProps.put(VideoEventSerializer.BINARY_TOPICS_CONFIG, binaryTopics);
         configProps.put(ProducerConfig.ACKS_CONFIG, "all");
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
         configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, 16384);
         configProps.put(ProducerConfig.LINGER_MS_CONFIG, 1);
+        configProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
         configProps.put(ProducerConfig.BUFFER_MEMORY_CONFIG, 33554432);
         return new DefaultKafkaProducerFactory<>(configProps);
     }
@@ -73,7 +103,8 @@ public class KafkaConfig {
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, "metrics-play-group");
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        // Reads binary video events and JSON alike, so records already on the topic stay readable
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, VideoEventDeserializer.class);
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
@@ -87,4 +118,41 @@ public class KafkaConfig {
         factory.getContainerProperties().setAckMode(org.springframework.kafka.listener.ContainerProperties.AckMode.MANUAL);
         return factory;
     }
+
+    // Viewer analytics in kafka.consumer.batch-mode: whole polls, one acknowledgment per poll
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> batchListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(org.springframework.kafka.listener.ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+
+    // Persistence works on whole polls and acknowledges once the batch is written
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> persistenceListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(org.springframework.kafka.listener.ContainerProperties.AckMode.MANUAL);
+        factory.setCommonErrorHandler(persistenceErrorHandler());
+        return factory;
+    }
+
+    /**
+     * A failed poll is retried whole with exponential back-off (1s doubling up to 30s) for up to
+     * events.persistence.retry-max-elapsed-ms, then every record of it goes to video-events-dlt
+     * and the consumer moves on. If that publish fails too the poll is retried again, so a
+     * record is only committed once it is in Postgres or in the dead-letter topic.
+     */
+    @Bean
+    public DefaultErrorHandler persistenceErrorHandler() {
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(kafkaTemplate(),
+                (record, ex) -> new TopicPartition(VIDEO_EVENTS_DLT_TOPIC, record.partition()));
+        ExponentialBackOff backOff = new ExponentialBackOff(1000, 2.0);
+        backOff.setMaxInterval(30000);
+        backOff.setMaxElapsedTime(persistenceRetryMaxElapsedMs);
+        return new DefaultErrorHandler(recoverer, backOff);
+    }
 }
@@ -3,13 +3,18 @@ package com.harsh.metricsPlay.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.util.List;
+
 @Configuration
 public class RedisConfig {
 
@@ -38,4 +43,28 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    /**
+     * Viewer set updates plus the resulting counts in one atomic call, see redis/viewers-apply.lua.
+     */
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> viewersApplyScript() {
+        DefaultRedisScript<List> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("redis/viewers-apply.lua"));
+        script.setResultType(List.class);
+        return script;
+    }
+
+    /**
+     * Trims stale viewers and rebuilds the total viewer counter, see redis/viewers-reap.lua.
+     */
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> viewersReapScript() {
+        DefaultRedisScript<List> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("redis/viewers-reap.lua"));
+        script.setResultType(List.class);
+        return script;
+    }
 }
@@ -0,0 +1,24 @@
+package com.harsh.metricsPlay.config;
+
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    // Slow mobile clients can take minutes to drain a capped chunk
+    @Value("${streaming.async-timeout-ms:300000}")
+    private long asyncTimeoutMs;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // Async response bodies (streaming.mode=async) block on socket writes, a virtual thread each keeps that cheap
+        configurer.setTaskExecutor(new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor()));
+        configurer.setDefaultTimeout(asyncTimeoutMs);
+    }
+}
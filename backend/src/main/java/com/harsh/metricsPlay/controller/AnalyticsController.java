@@ -0,0 +1,58 @@
+package com.harsh.metricsPlay.controller;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.harsh.metricsPlay.model.dto.FilmRollupDTO;
+import com.harsh.metricsPlay.model.entity.FilmRollup;
+import com.harsh.metricsPlay.service.analytics.FilmRollupService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@RestController
+@RequestMapping("/api/analytics")
+@RequiredArgsConstructor
+@Slf4j
+public class AnalyticsController {
+
+    private final FilmRollupService rollupService;
+
+    /**
+     * Historical per-film counters from the rollup tables. Defaults to the last 24 hours.
+     */
+    @GetMapping("/films/{filmId}/rollups")
+    public ResponseEntity<List<FilmRollupDTO>> getFilmRollups(@PathVariable Long filmId,
+            @RequestParam(defaultValue = "HOUR") FilmRollup.Granularity granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+        List<FilmRollupDTO> rollups = rollupService.getRollups(filmId, granularity, start, end).stream()
+                .map(rollup -> FilmRollupDTO.builder()
+                        .bucketStart(rollup.getBucketStart())
+                        .plays(rollup.getPlays())
+                        .pauses(rollup.getPauses())
+                        .completions(rollup.getCompletions())
+                        .uniqueSessions(rollup.getUniqueSessions())
+                        .watchSeconds(rollup.getWatchSeconds())
+                        .build())
+                .toList();
+        log.debug("[ANALYTICS-API] {} {} rollups for film {} between {} and {}", rollups.size(), granularity, filmId, start, end);
+        return ResponseEntity.ok(rollups);
+    }
+
+    @GetMapping("/rollups/stats")
+    public ResponseEntity<Map<String, Object>> getRollupStats() {
+        return ResponseEntity.ok(rollupService.getStats());
+    }
+}
@@ -1,24 +1,43 @@
 package com.harsh.metricsPlay.controller;
 
+import com.harsh.metricsPlay.model.dto.BatchEventResponse;
 import com.harsh.metricsPlay.model.events.VideoEventDTO;
-import com.harsh.metricsPlay.service.EventTrackingService;
-import com.harsh.metricsPlay.service.kafka.EventProducerService;
+import com.harsh.metricsPlay.service.EventIngestionService;
+import com.harsh.metricsPlay.service.ProgressEventCoalescer;
+import com.harsh.metricsPlay.service.kafka.EventSpillJournal;
+import com.harsh.metricsPlay.service.persistence.VideoEventPartitionManager;
+import com.harsh.metricsPlay.service.persistence.VideoEventPersistencePipeline;
+import com.harsh.metricsPlay.service.persistence.ViewingSessionAggregator;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/events")
 @Slf4j
 public class EventController {
     
-    private final EventProducerService eventProducerService;
-    private final EventTrackingService eventTrackingService;
+    private final ProgressEventCoalescer progressEventCoalescer;
+    private final EventIngestionService eventIngestionService;
+    private final VideoEventPersistencePipeline persistencePipeline;
+    private final ViewingSessionAggregator sessionAggregator;
+    private final VideoEventPartitionManager partitionManager;
+    private final EventSpillJournal spillJournal;
     
-    public EventController(EventProducerService eventProducerService, EventTrackingService eventTrackingService) {
-        this.eventProducerService = eventProducerService;
-        this.eventTrackingService = eventTrackingService;
+    public EventController(ProgressEventCoalescer progressEventCoalescer, EventIngestionService eventIngestionService, VideoEventPersistencePipeline persistencePipeline,
+                           ViewingSessionAggregator sessionAggregator, VideoEventPartitionManager partitionManager,
+                           EventSpillJournal spillJournal) {
+        this.progressEventCoalescer = progressEventCoalescer;
+        this.eventIngestionService = eventIngestionService;
+        this.persistencePipeline = persistencePipeline;
+        this.sessionAggregator = sessionAggregator;
+        this.partitionManager = partitionManager;
+        this.spillJournal = spillJournal;
     }
     
     @PostMapping("/video")
@@ -30,8 +49,8 @@ public class EventController {
                 event.getEventType(), event.getFilmId(), event.getUserId(), event.getSessionId());
             event.setTimestamp(java.time.LocalDateTime.now());
             log.info("[API-GATEWAY] Forwarding event to Kafka producer service");
-            eventProducerService.sendVideoEvent(event);
-            eventTrackingService.trackVideoEvent(event);
+            // Persistence happens in the video-events-persistence consumer, off the request path
+            progressEventCoalescer.publish(List.of(event));
             log.info("[API-GATEWAY] Event successfully forwarded to Kafka pipeline");
             return ResponseEntity.ok("Event tracked successfully");
             
@@ -40,4 +59,25 @@ public class EventController {
             return ResponseEntity.badRequest().body("Failed to track event");
         }
     }
-}
\ No newline at end of file
+
+    @PostMapping("/video/batch")
+    public ResponseEntity<BatchEventResponse> trackVideoEvents(@RequestBody List<VideoEventDTO> events,
+                                                               Principal principal, HttpServletRequest request) {
+        log.info("[API-GATEWAY] Received HTTP POST /api/events/video/batch with {} events from IP: {}",
+            events != null ? events.size() : 0, request.getRemoteAddr());
+        return ResponseEntity.ok(eventIngestionService.ingestBatch(events, principal != null ? principal.getName() : null));
+    }
+
+    @GetMapping("/producer/stats")
+    public ResponseEntity<Map<String, Object>> getProducerStats() {
+        return ResponseEntity.ok(Map.of("spill", spillJournal.getStats(), "coalescer", progressEventCoalescer.getStats()));
+    }
+
+    @GetMapping("/persistence/stats")
+    public ResponseEntity<Map<String, Object>> getPersistenceStats() {
+        Map<String, Object> stats = persistencePipeline.getStats();
+        stats.put("sessions", sessionAggregator.getStats());
+        stats.put("partitions", partitionManager.getStats());
+        return ResponseEntity.ok(stats);
+    }
+}
@@ -0,0 +1,68 @@
+package com.harsh.metricsPlay.controller;
+
+import java.security.Principal;
+import java.util.List;
+
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.stereotype.Controller;
+
+import com.harsh.metricsPlay.exception.InvalidEventBatchException;
+import com.harsh.metricsPlay.model.dto.BatchEventResponse;
+import com.harsh.metricsPlay.model.dto.EventAckDTO;
+import com.harsh.metricsPlay.model.events.VideoEventDTO;
+import com.harsh.metricsPlay.service.EventIngestionService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Event ingestion over the STOMP connection the player already holds. Sessions are
+ * authenticated once at CONNECT ({@code StompAuthInterceptor}); every frame is answered on
+ * /user/queue/event-acks of the sending session only.
+ */
+@Controller
+@Slf4j
+public class EventStreamController {
+
+    private static final String ACK_ID_HEADER = "ack-id";
+
+    private final EventIngestionService eventIngestionService;
+
+    public EventStreamController(EventIngestionService eventIngestionService) {
+        this.eventIngestionService = eventIngestionService;
+    }
+
+    @MessageMapping("/events/video")
+    @SendToUser(destinations = "/queue/event-acks", broadcast = false)
+    public EventAckDTO trackVideoEvent(@Payload VideoEventDTO event, Principal principal,
+                                       @Header(name = ACK_ID_HEADER, required = false) String ackId) {
+        return ingest(List.of(event), principal, ackId);
+    }
+
+    @MessageMapping("/events/video/batch")
+    @SendToUser(destinations = "/queue/event-acks", broadcast = false)
+    public EventAckDTO trackVideoEvents(@Payload List<VideoEventDTO> events, Principal principal,
+                                        @Header(name = ACK_ID_HEADER, required = false) String ackId) {
+        return ingest(events, principal, ackId);
+    }
+
+    private EventAckDTO ingest(List<VideoEventDTO> events, Principal principal, String ackId) {
+        try {
+            log.debug("[WS-INGEST] {} events from {} (ack-id {})", events != null ? events.size() : 0, principal.getName(), ackId);
+            BatchEventResponse response = eventIngestionService.ingestBatch(events, principal.getName());
+            return EventAckDTO.builder()
+                    .ackId(ackId)
+                    .accepted(response.getAccepted())
+                    .rejected(response.getRejected())
+                    .results(response.getResults())
+                    .build();
+        } catch (InvalidEventBatchException e) {
+            return EventAckDTO.builder().ackId(ackId).error(e.getMessage()).build();
+        } catch (Exception e) {
+            log.error("[WS-INGEST] Error ingesting events from {}: {}", principal.getName(), e.getMessage(), e);
+            return EventAckDTO.builder().ackId(ackId).error("Failed to track events").build();
+        }
+    }
+}
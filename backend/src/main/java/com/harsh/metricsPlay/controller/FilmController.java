@@ -1,20 +1,38 @@
 package com.harsh.metricsPlay.controller;
 
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.harsh.metricsPlay.exception.FilmNotFoundException;
+import com.harsh.metricsPlay.exception.RangeNotSatisfiableException;
+import com.harsh.metricsPlay.model.dto.FaststartReportDTO;
 import com.harsh.metricsPlay.model.dto.FilmDTO;
+import com.harsh.metricsPlay.model.dto.FilmStreamDescriptor;
+import com.harsh.metricsPlay.model.dto.SeekPointDTO;
+import com.harsh.metricsPlay.model.dto.VideoFileMetadata;
 import com.harsh.metricsPlay.model.dto.VideoStreamDTO;
 import com.harsh.metricsPlay.service.FilmService;
 import com.harsh.metricsPlay.service.StreamingService;
+import com.harsh.metricsPlay.service.streaming.PlaybackPrefetchService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 import java.util.List;
+import java.util.Map;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -22,12 +40,31 @@ import lombok.extern.slf4j.Slf4j;
 @RequestMapping("/api/films")
 @Slf4j
 public class FilmController {
+    // Tomcat hands these off to the connector, which uses sendfile(2) once the servlet returns
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
     private final FilmService filmService;
     private final StreamingService streamingService;
+    private final PlaybackPrefetchService prefetchService;
+
+    @Value("${streaming.sendfile-enabled:true}")
+    private boolean sendfileEnabled;
 
-    public FilmController(FilmService filmService, StreamingService streamingService) {
+    @Value("${streaming.cache-control:private, max-age=3600}")
+    private String cacheControl;
+
+    // blocking: the Tomcat thread writes the body, async: it is written from a virtual thread
+    @Value("${streaming.mode:blocking}")
+    private String streamingMode;
+
+    public FilmController(FilmService filmService, StreamingService streamingService,
+                          PlaybackPrefetchService prefetchService) {
         this.filmService = filmService;
         this.streamingService = streamingService;
+        this.prefetchService = prefetchService;
     }
 
     @GetMapping
@@ -41,41 +78,164 @@ public class FilmController {
         return ResponseEntity.ok(filmService.getFilm(filmId));
     }
 
+    @GetMapping("/stream/stats")
+    public ResponseEntity<Map<String, Object>> getStreamingStats() {
+        Map<String, Object> stats = streamingService.getStreamingStats();
+        stats.put("prefetch", prefetchService.getStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    @GetMapping("/stream/faststart")
+    public ResponseEntity<List<FaststartReportDTO>> getFaststartReport() {
+        return ResponseEntity.ok(streamingService.getFaststartReport());
+    }
+
+    @GetMapping("/{filmId}/seek")
+    public ResponseEntity<SeekPointDTO> getSeekPoint(@PathVariable Long filmId, @RequestParam("t") double seconds,
+                                                     HttpServletRequest request) throws IOException {
+        // Offsets are for the file this playback is on, which its next Range requests will hit
+        FilmStreamDescriptor film = streamingService.resolveFilmStream(filmId, playbackKey(request, filmId), true, null);
+        if (film.getVideo() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        SeekPointDTO seekPoint = streamingService.findSeekPoint(film, seconds);
+        if (seekPoint == null) {
+            log.warn("No MP4 sample index for film {} ({})", filmId, film.getVideoFilename());
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(seekPoint);
+    }
+
     @GetMapping("/{filmId}/stream")
-    public ResponseEntity<byte[]> streamFilm(@PathVariable Long filmId, @RequestHeader(value = "Range", required = false) String rangeHeader) {
+    public StreamingResponseBody streamFilm(@PathVariable Long filmId, @RequestHeader(value = "Range", required = false) String rangeHeader,
+                                            @RequestParam(value = "t", required = false) Double seekTime,
+                                            HttpServletRequest request, HttpServletResponse response) {
         try {
             log.info("Streaming request for film ID: {} with Range: {}", filmId, rangeHeader);
-            // Get film details
-            FilmDTO film = filmService.getFilm(filmId);
-            log.info("Found film: {} with video file: {}", film.getTitle(), film.getVideoUrl());
-            String videoFilename = film.getVideoUrl();
-            VideoStreamDTO streamResponse = this.streamingService.getFilmChunk(videoFilename, rangeHeader);
-            if (streamResponse == null) {
+            // Bandwidth is shared per viewer and film, anonymous clients are told apart by address
+            String flowKey = playbackKey(request, filmId);
+            // Resolve film -> video file from the in-process caches, no DB hit per chunk
+            FilmStreamDescriptor film = streamingService.resolveFilmStream(filmId, flowKey, rangeHeader != null,
+                    request.getHeader(HttpHeaders.IF_RANGE));
+            String videoFilename = film.getVideoFilename();
+            VideoFileMetadata video = film.getVideo();
+            if (video == null) {
                 log.error("No stream response for film ID: {}, video file: {}", filmId, videoFilename);
-                return ResponseEntity.notFound().build();
+                response.setStatus(HttpStatus.NOT_FOUND.value());
+                return null;
+            }
+
+            // Validators: answers If-None-Match / If-Modified-Since with a 304 and sets ETag + Last-Modified
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+            if (new ServletWebRequest(request, response).checkNotModified(video.getEtag(), video.getLastModified())) {
+                log.debug("Film {} not modified for this client", filmId);
+                return null;
             }
+            if (rangeHeader != null && !streamingService.isIfRangeFresh(request.getHeader(HttpHeaders.IF_RANGE), video)) {
+                log.debug("Stale If-Range for film {}, ignoring Range: {}", filmId, rangeHeader);
+                rangeHeader = null;
+            }
+            // ?t=seconds starts the stream at the keyframe for that time, an explicit Range still wins
+            if (rangeHeader == null && seekTime != null) {
+                SeekPointDTO seekPoint = streamingService.findSeekPoint(film, seekTime);
+                if (seekPoint != null) {
+                    log.debug("Film {} seek to {}s resolved to keyframe {}s at byte {}", filmId, seekTime,
+                            seekPoint.getKeyframeTime(), seekPoint.getByteOffset());
+                    rangeHeader = "bytes=" + seekPoint.getByteOffset() + "-";
+                }
+            }
+            VideoStreamDTO streamResponse = streamingService.getFilmChunk(video, rangeHeader);
 
-            log.info("Streaming {} bytes ({}-{}/{}) for film: {}", 
-                streamResponse.getContentLength(), 
-                streamResponse.getStart(), 
-                streamResponse.getEnd(), 
+            log.info("Streaming {} bytes ({}-{}/{}) for film: {}",
+                streamResponse.getContentLength(),
+                streamResponse.getStart(),
+                streamResponse.getEnd(),
                 streamResponse.getFileSize(),
                 film.getTitle());
 
-            HttpHeaders headers = new HttpHeaders();
-                headers.add("Content-Type", "video/mp4");
-                headers.add("Accept-Ranges", "bytes");
-                headers.add("Content-Length", String.valueOf(streamResponse.getContentLength()));
-                
-            // Only add Content-Range if it's a range request
-            if (rangeHeader != null) {
-                headers.add("Content-Range", "bytes " + streamResponse.getStart() + "-" + streamResponse.getEnd() + "/" + streamResponse.getFileSize());
+            response.setStatus(streamResponse.isPartial() ? HttpStatus.PARTIAL_CONTENT.value() : HttpStatus.OK.value());
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+            if (streamResponse.getRanges().size() > 1) {
+                String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+                response.setContentType("multipart/byteranges; boundary=" + boundary);
+                response.setContentLengthLong(streamingService.multipartLength(streamResponse, video.getContentType(), boundary));
+                return writeBody(filmId, response, out ->
+                        streamingService.writeMultipart(streamResponse, video.getContentType(), boundary, out, flowKey));
+            }
+
+            response.setContentType(video.getContentType());
+            response.setContentLengthLong(streamResponse.getContentLength());
+            // Only add Content-Range for partial responses (range requests or capped chunks)
+            if (streamResponse.isPartial()) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + streamResponse.getStart() + "-" + streamResponse.getEnd() + "/" + streamResponse.getFileSize());
+            }
+            if (streamResponse.getContentLength() == 0) {
+                return null;
+            }
+
+            // Mapped segments win over sendfile when the cache is on, hot films then skip the open/seek entirely.
+            // sendfile also bypasses the I/O scheduler, so it is only used when no rate cap is set
+            if (sendfileEnabled && !streamingService.isSegmentCacheEnabled() && !streamingService.isIoSchedulerShaping()
+                    && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+                request.setAttribute(SENDFILE_FILENAME_ATTR, streamResponse.getPath().toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START_ATTR, streamResponse.getStart());
+                request.setAttribute(SENDFILE_END_ATTR, streamResponse.getEnd() + 1);
+                return null;
             }
-            HttpStatus status = rangeHeader != null ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK;
-            return new ResponseEntity<>(streamResponse.getData(), headers, status);
-        }catch (Exception e) {
+            return writeBody(filmId, response, out -> streamingService.transferRange(streamResponse.getPath(),
+                    streamResponse.getStart(), streamResponse.getContentLength(), streamResponse.getFileSize(), out, flowKey));
+        } catch (FilmNotFoundException e) {
+            log.warn("Streaming request for unknown film {}", filmId);
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+        } catch (RangeNotSatisfiableException e) {
+            log.warn("Unsatisfiable range for film {}: {}", filmId, rangeHeader);
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + e.getFileSize());
+        } catch (IOException e) {
+            if (response.isCommitted()) {
+                // Players drop connections all the time while seeking
+                log.debug("Client aborted stream for film {}: {}", filmId, e.getMessage());
+            } else {
+                // Nothing was sent yet, so this is our failure (stat/open/read), not the client's
+                log.error("I/O error streaming film {}: {}", filmId, e.getMessage());
+                response.reset();
+                response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            }
+        } catch (Exception e) {
             log.error("Error streaming film {}: {}", filmId, e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Blocking mode writes the body on the request thread and returns null (response already
+     * handled). Async mode hands it back to MVC, which writes it on the async executor
+     * after the container thread has been released.
+     */
+    private StreamingResponseBody writeBody(Long filmId, HttpServletResponse response, StreamingResponseBody body) throws IOException {
+        if (!"async".equalsIgnoreCase(streamingMode)) {
+            body.writeTo(response.getOutputStream());
+            return null;
         }
+        return out -> {
+            try {
+                body.writeTo(out);
+                out.flush();
+            } catch (IOException e) {
+                if (!response.isCommitted()) {
+                    throw e; // failed before the first byte, let MVC answer with an error status
+                }
+                log.debug("Client aborted async stream for film {}: {}", filmId, e.getMessage());
+            }
+        };
+    }
+
+    private static String playbackKey(HttpServletRequest request, Long filmId) {
+        return (request.getUserPrincipal() != null ? request.getUserPrincipal().getName() : request.getRemoteAddr()) + ":" + filmId;
     }
-}
\ No newline at end of file
+}
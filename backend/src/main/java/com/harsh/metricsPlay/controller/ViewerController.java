@@ -1,15 +1,19 @@
 package com.harsh.metricsPlay.controller;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.harsh.metricsPlay.service.analytics.RealTimeAnalyticsService;
+import com.harsh.metricsPlay.service.analytics.UniqueViewerService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,6 +25,7 @@ import lombok.extern.slf4j.Slf4j;
 public class ViewerController {
 
     private final RealTimeAnalyticsService analyticsService;
+    private final UniqueViewerService uniqueViewerService;
 
     @GetMapping("/film/{filmId}/count")
     public ResponseEntity<Map<String, Object>> getViewerCount(@PathVariable Long filmId) {
@@ -40,4 +45,64 @@ public class ViewerController {
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    @GetMapping("/total")
+    public ResponseEntity<Map<String, Object>> getTotalViewers() {
+        try {
+            Long totalViewers = analyticsService.getTotalViewers();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("totalViewers", totalViewers);
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("Error getting total viewer count: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Approximate unique viewers for the current hour, day and all time; platform-wide unless
+     * filmId is given.
+     */
+    @GetMapping("/unique")
+    public ResponseEntity<Map<String, Object>> getUniqueViewers(@RequestParam(required = false) Long filmId) {
+        try {
+            Map<String, Object> response = uniqueViewerService.getCurrentUniqueViewers(filmId);
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("Error getting unique viewers for film {}: {}", filmId, e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Approximate unique viewers between from and to, at hour resolution. Defaults to the last 24 hours.
+     */
+    @GetMapping("/unique/range")
+    public ResponseEntity<Map<String, Object>> getUniqueViewersInRange(@RequestParam(required = false) Long filmId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+        try {
+            long uniqueViewers = uniqueViewerService.getUniqueViewers(filmId, start, end);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("filmId", filmId);
+            response.put("from", start);
+            response.put("to", end);
+            response.put("uniqueViewers", uniqueViewers);
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error getting unique viewers for film {} between {} and {}: {}", filmId, start, end, e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
 }
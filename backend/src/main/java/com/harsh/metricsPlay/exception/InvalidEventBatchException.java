@@ -0,0 +1,7 @@
+package com.harsh.metricsPlay.exception;
+
+public class InvalidEventBatchException extends RuntimeException {
+    public InvalidEventBatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package com.harsh.metricsPlay.exception;
+
+public class RangeNotSatisfiableException extends RuntimeException {
+    private final long fileSize;
+
+    public RangeNotSatisfiableException(String rangeHeader, long fileSize) {
+        super("Range not satisfiable: " + rangeHeader + " (file size " + fileSize + ")");
+        this.fileSize = fileSize;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+}
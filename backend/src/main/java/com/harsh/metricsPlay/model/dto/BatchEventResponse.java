@@ -0,0 +1,20 @@
+package com.harsh.metricsPlay.model.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class BatchEventResponse {
+    private int accepted;
+    private int rejected;
+    private List<EventResult> results;
+}
@@ -0,0 +1,19 @@
+package com.harsh.metricsPlay.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Data
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class ByteRange {
+    private long start;
+    private long end; // inclusive
+
+    public long getLength() {
+        return end - start + 1;
+    }
+}
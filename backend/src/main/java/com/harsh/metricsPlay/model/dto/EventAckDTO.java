@@ -0,0 +1,22 @@
+package com.harsh.metricsPlay.model.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class EventAckDTO {
+    private String ackId; // echoed from the frame's ack-id header, clients resend frames left unacknowledged
+    private int accepted;
+    private int rejected;
+    private List<EventResult> results;
+    private String error;
+}
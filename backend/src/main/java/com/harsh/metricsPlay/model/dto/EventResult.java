@@ -0,0 +1,19 @@
+package com.harsh.metricsPlay.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class EventResult {
+    private int index; // position in the submitted batch
+    private String eventId;
+    private boolean accepted;
+    private String error;
+}
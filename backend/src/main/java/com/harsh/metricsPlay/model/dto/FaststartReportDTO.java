@@ -0,0 +1,22 @@
+package com.harsh.metricsPlay.model.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Data
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FaststartReportDTO {
+    private String file;
+    private String status; // PENDING, FASTSTART, REWRITTEN, SKIPPED, FAILED
+    private String detail;
+    private String servedFrom;
+    private LocalDateTime checkedAt;
+}
@@ -0,0 +1,23 @@
+package com.harsh.metricsPlay.model.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Data
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FilmRollupDTO {
+    private LocalDateTime bucketStart;
+    private long plays;
+    private long pauses;
+    private long completions;
+    private long uniqueSessions;
+    private double watchSeconds;
+}
@@ -0,0 +1,19 @@
+package com.harsh.metricsPlay.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Data
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FilmStreamDescriptor {
+    private Long filmId;
+    private String title;
+    private String videoFilename;
+    private VideoFileMetadata video; // null when the file is missing on disk
+}
@@ -0,0 +1,21 @@
+package com.harsh.metricsPlay.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Data
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SeekPointDTO {
+    private Long filmId;
+    private double requestedTime;
+    private double keyframeTime; // nearest keyframe at or before requestedTime
+    private long byteOffset;
+    private double duration;
+    private long fileSize;
+}
@@ -32,4 +32,7 @@ public class VideoEventDTO {
     
     @JsonProperty("currentTime")
     private Double currentTime;
+
+    @JsonProperty("duration")
+    private Double duration; // total length of the film in seconds, as reported by the player
 }
@@ -0,0 +1,23 @@
+package com.harsh.metricsPlay.model.dto;
+
+import java.nio.file.Path;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Data
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VideoFileMetadata {
+    private Path path;
+    private long fileSize;
+    private long lastModified; // epoch millis
+    private String etag;
+    private String contentType;
+    private long checkedAt; // when the file was last stat'ed
+}
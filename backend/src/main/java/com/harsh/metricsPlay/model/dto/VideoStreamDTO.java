@@ -1,5 +1,8 @@
 package com.harsh.metricsPlay.model.dto;
 
+import java.nio.file.Path;
+import java.util.List;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,9 +15,11 @@ import lombok.ToString;
 @AllArgsConstructor
 @Builder
 public class VideoStreamDTO {
-    private byte[] data;
+    private Path path;
     private long start;
     private long end;
     private long fileSize;
-    private long contentLength;
-}
\ No newline at end of file
+    private long contentLength; // video bytes served, summed over all ranges
+    private List<ByteRange> ranges;
+    private boolean partial;
+}
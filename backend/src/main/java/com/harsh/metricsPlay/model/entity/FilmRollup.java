@@ -0,0 +1,54 @@
+package com.harsh.metricsPlay.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Written by FilmRollupService with JDBC upserts, read through FilmRollupRepository
+@Entity
+@Table(name = "film_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "film_rollups_bucket_key", columnNames = {"film_id", "granularity", "bucket_start"})
+}, indexes = {
+    @Index(name = "film_rollups_granularity_bucket_idx", columnList = "granularity, bucket_start")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilmRollup {
+
+    public enum Granularity { MINUTE, HOUR, DAY }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "film_id", nullable = false)
+    private Long filmId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", nullable = false, length = 8)
+    private Granularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "plays", nullable = false)
+    private long plays;
+
+    @Column(name = "pauses", nullable = false)
+    private long pauses;
+
+    @Column(name = "completions", nullable = false)
+    private long completions;
+
+    @Column(name = "unique_sessions", nullable = false)
+    private long uniqueSessions;
+
+    @Column(name = "watch_seconds", nullable = false)
+    private double watchSeconds; // Seconds actually watched, as credited to viewing sessions
+}
@@ -9,15 +9,24 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
+// Range-partitioned by day on event_timestamp; VideoEventPartitionManager owns the table and its
+// indexes, schema update leaves it alone
 @Table(name = "video_events")
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class VideoEvent {
+    // Ids are handed out in blocks, which lets inserts be batched (see VideoEventPersistencePipeline)
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "video_events_seq")
+    @SequenceGenerator(name = "video_events_seq", sequenceName = "video_events_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
+
+    @Column(name = "event_id", length = 64)
+    private String eventId;
     
     @Column(name = "event_type", nullable = false)
     private String eventType; // "play", "pause", "seek", "ended", "progress"
@@ -9,7 +9,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "viewing_sessions")
+@Table(name = "viewing_sessions", indexes = {
+    // Unique-session counts for hour and day rollups
+    @Index(name = "viewing_sessions_film_start_idx", columnList = "film_id, start_time")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -42,4 +45,13 @@ public class ViewingSession {
     
     @Column(name = "last_position")
     private Double lastPosition; // Last known position in video
+
+    @Column(name = "last_event_time")
+    private LocalDateTime lastEventTime; // Timestamp of the newest event applied, older ones arrived out of order
+
+    @Column(name = "last_event_id")
+    private String lastEventId; // Id of that event, so a redelivery of it is recognised after a reload
+
+    @Column(name = "is_playing")
+    private Boolean playing; // Player was running after the last event, null on rows from before the column
 }
\ No newline at end of file
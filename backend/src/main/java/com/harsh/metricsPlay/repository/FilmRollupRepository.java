@@ -0,0 +1,15 @@
+package com.harsh.metricsPlay.repository;
+
+import com.harsh.metricsPlay.model.entity.FilmRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface FilmRollupRepository extends JpaRepository<FilmRollup, Long> {
+
+    List<FilmRollup> findByFilmIdAndGranularityAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStart(
+            Long filmId, FilmRollup.Granularity granularity, LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,112 @@
+package com.harsh.metricsPlay.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.harsh.metricsPlay.exception.InvalidEventBatchException;
+import com.harsh.metricsPlay.model.dto.BatchEventResponse;
+import com.harsh.metricsPlay.model.dto.EventResult;
+import com.harsh.metricsPlay.model.events.VideoEventDTO;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Validates player events and publishes them to Kafka. A batch is checked once up front, then
+ * the valid events go through the {@link ProgressEventCoalescer} in a single pass; persistence
+ * happens downstream in {@code EventPersistenceConsumer}.
+ */
+@Service
+@Slf4j
+public class EventIngestionService {
+
+    private static final Set<String> EVENT_TYPES = Set.of("play", "pause", "seek", "progress", "ended", "loaded");
+
+    private final ProgressEventCoalescer progressEventCoalescer;
+
+    @Value("${events.batch.max-size:500}")
+    private int maxBatchSize;
+
+    public EventIngestionService(ProgressEventCoalescer progressEventCoalescer) {
+        this.progressEventCoalescer = progressEventCoalescer;
+    }
+
+    /**
+     * @param principal authenticated username, used for events that carry no userId
+     */
+    public BatchEventResponse ingestBatch(List<VideoEventDTO> events, String principal) {
+        if (events == null || events.isEmpty()) {
+            throw new InvalidEventBatchException("Event batch is empty");
+        }
+        if (events.size() > maxBatchSize) {
+            throw new InvalidEventBatchException("Event batch of " + events.size() + " exceeds the limit of " + maxBatchSize);
+        }
+
+        List<EventResult> results = new ArrayList<>(events.size());
+        List<VideoEventDTO> accepted = new ArrayList<>(events.size());
+        LocalDateTime receivedAt = LocalDateTime.now();
+        for (int i = 0; i < events.size(); i++) {
+            VideoEventDTO event = events.get(i);
+            String error = validate(event, principal);
+            if (error != null) {
+                results.add(EventResult.builder().index(i).eventId(event != null ? event.getEventId() : null).error(error).build());
+                continue;
+            }
+            normalize(event, principal, receivedAt);
+            accepted.add(event);
+            results.add(EventResult.builder().index(i).eventId(event.getEventId()).accepted(true).build());
+        }
+
+        if (!accepted.isEmpty()) {
+            progressEventCoalescer.publish(accepted);
+        }
+        log.info("[EVENT-INGESTION] Batch of {} events: {} accepted, {} rejected",
+                events.size(), accepted.size(), events.size() - accepted.size());
+        return BatchEventResponse.builder()
+                .accepted(accepted.size())
+                .rejected(events.size() - accepted.size())
+                .results(results)
+                .build();
+    }
+
+    private String validate(VideoEventDTO event, String principal) {
+        if (event == null) {
+            return "event is null";
+        }
+        if (event.getEventType() == null || !EVENT_TYPES.contains(event.getEventType().toLowerCase(Locale.ROOT))) {
+            return "unknown eventType: " + event.getEventType();
+        }
+        if (event.getFilmId() == null) {
+            return "filmId is required";
+        }
+        if (event.getSessionId() == null || event.getSessionId().isBlank()) {
+            return "sessionId is required";
+        }
+        if ((event.getUserId() == null || event.getUserId().isBlank()) && principal == null) {
+            return "userId is required";
+        }
+        if (event.getCurrentTime() != null && (event.getCurrentTime() < 0 || event.getCurrentTime().isNaN())) {
+            return "currentTime must be a non-negative number";
+        }
+        return null;
+    }
+
+    private void normalize(VideoEventDTO event, String principal, LocalDateTime receivedAt) {
+        if (event.getEventId() == null || event.getEventId().isBlank()) {
+            event.setEventId(UUID.randomUUID().toString());
+        }
+        if (event.getUserId() == null || event.getUserId().isBlank()) {
+            event.setUserId(principal);
+        }
+        // Batched events are delivered late, so a client timestamp is kept when it is plausible
+        if (event.getTimestamp() == null || event.getTimestamp().isAfter(receivedAt)) {
+            event.setTimestamp(receivedAt);
+        }
+    }
+}
@@ -1,18 +1,16 @@
 package com.harsh.metricsPlay.service;
 
 import java.time.LocalDateTime;
-import java.util.Locale;
-import java.util.Optional;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import com.harsh.metricsPlay.model.entity.VideoEvent;
-import com.harsh.metricsPlay.model.entity.ViewingSession;
 import com.harsh.metricsPlay.model.events.VideoEventDTO;
-import com.harsh.metricsPlay.repository.VideoEventRepository;
-import com.harsh.metricsPlay.repository.ViewingSessionRepository;
-import com.harsh.metricsPlay.service.kafka.EventProducerService;
+import com.harsh.metricsPlay.service.analytics.FilmRollupService;
+import com.harsh.metricsPlay.service.persistence.VideoEventPersistencePipeline;
+import com.harsh.metricsPlay.service.persistence.ViewingSessionAggregator;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -20,95 +18,48 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class EventTrackingService {
     
-    private final VideoEventRepository eventRepository;
-    private final ViewingSessionRepository sessionRepository;
-    private final EventProducerService eventProducerService;
+    private final VideoEventPersistencePipeline persistencePipeline;
+    private final ViewingSessionAggregator sessionAggregator;
+    private final FilmRollupService rollupService;
     
-    public EventTrackingService(VideoEventRepository eventRepository, 
-                              ViewingSessionRepository sessionRepository,
-                            EventProducerService eventProducerService) {
-        this.eventRepository = eventRepository;
-        this.sessionRepository = sessionRepository;
-        this.eventProducerService = eventProducerService;
+    public EventTrackingService(VideoEventPersistencePipeline persistencePipeline,
+                              ViewingSessionAggregator sessionAggregator,
+                              FilmRollupService rollupService) {
+        this.persistencePipeline = persistencePipeline;
+        this.sessionAggregator = sessionAggregator;
+        this.rollupService = rollupService;
     }
 
-    @Transactional
-    public void trackVideoEvent(VideoEventDTO incoming) {
-        try {
-            if (incoming == null) {
-                log.warn("trackVideoEvent called with null event");
-                return;
-            }
-
-            // Build JPA entity from incoming event
-            VideoEvent entity = VideoEvent.builder()
-                .eventType(incoming.getEventType())
-                .filmId(incoming.getFilmId())
-                .username(incoming.getUserId())
-                .currentTime(incoming.getCurrentTime())
-                .sessionId(incoming.getSessionId())
-                .timestamp(incoming.getTimestamp() != null ? incoming.getTimestamp() : LocalDateTime.now())
-                .build();
-
-            eventRepository.save(entity);
-            log.info("[EVENT-TRACKING] Saved event type={} filmId={} user={} t={}",
-                entity.getEventType(), entity.getFilmId(), entity.getUsername(), entity.getCurrentTime());
-
-            // Update session state
-            updateViewingSession(incoming);
-        } catch (Exception e) {
-            log.error("[EVENT-TRACKING] Error persisting event: {}", e.getMessage(), e);
+    /**
+     * Persists events consumed from Kafka: the rows go to the batched writer, keyed by event id so
+     * redeliveries are no-ops, and the events are applied in order to the in-memory viewing
+     * sessions and per-minute rollups. The future completes once the rows are written.
+     */
+    public CompletableFuture<Void> trackVideoEvents(List<VideoEventDTO> events) {
+        if (events.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> written = persistencePipeline.submit(events.stream().map(this::toEntity).toList());
+        for (VideoEventDTO event : events) {
+            // The session aggregator skips event ids it has already applied, which keeps redelivered
+            // polls from being counted into the rollups twice
+            sessionAggregator.apply(event).ifPresent(watched -> rollupService.record(event, watched));
         }
+        log.debug("[EVENT-TRACKING] Submitted {} events for persistence", events.size());
+        return written;
     }
 
-    // Update or create viewing session based on the incoming event
-    private void updateViewingSession(VideoEventDTO incoming) {
-        try {
-            Optional<ViewingSession> existing = sessionRepository.findById(incoming.getSessionId());
-            ViewingSession session = existing.orElseGet(() -> ViewingSession.builder()
-                .sessionId(incoming.getSessionId())
-                .filmId(incoming.getFilmId())
-                .username(incoming.getUserId())
-                .startTime(LocalDateTime.now())
-                .totalWatchTime(0.0)
-                .completed(false)
-                .lastPosition(0.0)
-                .build()
-            );
-
-            String type = incoming.getEventType() != null ? incoming.getEventType().toLowerCase(Locale.ROOT) : "";
-            Double position = incoming.getCurrentTime();
-
-            switch (type) {
-                case "play":
-                    if (session.getStartTime() == null) {
-                        session.setStartTime(LocalDateTime.now());
-                    }
-                    break;
-                case "pause":
-                case "seek":
-                case "progress":
-                    if (position != null) {
-                        session.setLastPosition(position);
-                    }
-                    break;
-                case "ended":
-                    session.setCompleted(true);
-                    session.setEndTime(LocalDateTime.now());
-                    if (position != null) {
-                        session.setLastPosition(position);
-                    }
-                    break;
-                default:
-                    if (position != null) {
-                        session.setLastPosition(position);
-                    }
-            }
-            sessionRepository.save(session);
-            log.debug("[EVENT-TRACKING] Updated session {} for user={} film={} pos={}",
-                session.getSessionId(), session.getUsername(), session.getFilmId(), session.getLastPosition());
-        } catch (Exception e) {
-            log.error("[EVENT-TRACKING] Error updating session: {}", e.getMessage(), e);
-        }
+    // Build JPA entity from incoming event
+    private VideoEvent toEntity(VideoEventDTO incoming) {
+        return VideoEvent.builder()
+            .eventId(incoming.getEventId())
+            .eventType(incoming.getEventType())
+            .filmId(incoming.getFilmId())
+            .username(incoming.getUserId())
+            .currentTime(incoming.getCurrentTime())
+            .duration(incoming.getDuration())
+            .sessionId(incoming.getSessionId())
+            .timestamp(incoming.getTimestamp() != null ? incoming.getTimestamp() : LocalDateTime.now())
+            .build();
     }
-}
\ No newline at end of file
+}
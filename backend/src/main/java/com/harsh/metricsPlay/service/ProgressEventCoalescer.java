@@ -0,0 +1,178 @@
+package com.harsh.metricsPlay.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.harsh.metricsPlay.model.events.VideoEventDTO;
+import com.harsh.metricsPlay.service.kafka.EventProducerService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Drops redundant progress ticks before they reach Kafka. Per session, a progress event is
+ * forwarded when interval-ms has passed since the session's last forwarded event or the
+ * position moved at least position-delta-seconds; otherwise it is held, replacing any progress
+ * event held before it. Any other event type is forwarded at once, preceded by the held
+ * progress event, and held events are also flushed once they are interval-ms old, so the last
+ * known position always arrives. Sends for a session happen under its lock, which keeps them
+ * in order on the session's partition.
+ */
+@Component
+@Slf4j
+public class ProgressEventCoalescer {
+
+    private final EventProducerService eventProducerService;
+
+    @Value("${events.coalesce.enabled:true}")
+    private boolean enabled;
+
+    @Value("${events.coalesce.interval-ms:10000}")
+    private long intervalMs;
+
+    @Value("${events.coalesce.position-delta-seconds:10}")
+    private double positionDeltaSeconds;
+
+    @Value("${events.coalesce.idle-timeout-ms:600000}")
+    private long idleTimeoutMs;
+
+    private final ConcurrentHashMap<String, SessionState> sessions = new ConcurrentHashMap<>();
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong forwarded = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public ProgressEventCoalescer(EventProducerService eventProducerService) {
+        this.eventProducerService = eventProducerService;
+    }
+
+    /**
+     * Forwards the events that carry new information to Kafka, in order per session.
+     */
+    public void publish(List<VideoEventDTO> events) {
+        received.addAndGet(events.size());
+        if (!enabled) {
+            forward(events);
+            return;
+        }
+        Map<String, List<VideoEventDTO>> bySession = new LinkedHashMap<>();
+        List<VideoEventDTO> sessionless = new ArrayList<>();
+        for (VideoEventDTO event : events) {
+            if (event.getSessionId() == null) {
+                sessionless.add(event);
+            } else {
+                bySession.computeIfAbsent(event.getSessionId(), id -> new ArrayList<>()).add(event);
+            }
+        }
+        if (!sessionless.isEmpty()) {
+            forward(sessionless);
+        }
+        long now = System.currentTimeMillis();
+        bySession.forEach((sessionId, sessionEvents) -> {
+            while (true) {
+                SessionState state = sessions.computeIfAbsent(sessionId, id -> new SessionState());
+                synchronized (state) {
+                    if (state.evicted) {
+                        continue; // lost a race with the sweep, start from a fresh state
+                    }
+                    List<VideoEventDTO> out = new ArrayList<>(sessionEvents.size() + 1);
+                    for (VideoEventDTO event : sessionEvents) {
+                        accept(state, event, now, out);
+                    }
+                    forward(out);
+                    return;
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${events.coalesce.interval-ms:10000}")
+    public void flushHeld() {
+        long now = System.currentTimeMillis();
+        sessions.forEach((sessionId, state) -> {
+            synchronized (state) {
+                if (state.held != null && now - state.heldSince >= intervalMs) {
+                    VideoEventDTO held = state.held;
+                    state.held = null;
+                    state.markForwarded(held, now);
+                    forward(List.of(held));
+                } else if (state.held == null && now - state.lastForwardedAt > idleTimeoutMs) {
+                    state.evicted = true;
+                    sessions.remove(sessionId, state);
+                }
+            }
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("sessions", sessions.size());
+        stats.put("received", received.get());
+        stats.put("forwarded", forwarded.get());
+        stats.put("coalesced", coalesced.get());
+        return stats;
+    }
+
+    private void accept(SessionState state, VideoEventDTO event, long now, List<VideoEventDTO> out) {
+        boolean progress = "progress".equalsIgnoreCase(event.getEventType());
+        if (progress && !state.isNewsworthy(event, now, intervalMs, positionDeltaSeconds)) {
+            if (state.held != null) {
+                coalesced.incrementAndGet();
+            } else {
+                state.heldSince = now;
+            }
+            state.held = event;
+            return;
+        }
+        if (state.held != null) {
+            if (progress) {
+                coalesced.incrementAndGet(); // superseded by a newer progress event
+            } else {
+                out.add(state.held);
+            }
+            state.held = null;
+        }
+        out.add(event);
+        state.markForwarded(event, now);
+    }
+
+    private void forward(List<VideoEventDTO> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        forwarded.addAndGet(events.size());
+        eventProducerService.sendVideoEvents(events);
+    }
+
+    private static final class SessionState {
+        private long lastForwardedAt;
+        private Double lastForwardedPosition;
+        private VideoEventDTO held;
+        private long heldSince;
+        private boolean evicted;
+
+        private boolean isNewsworthy(VideoEventDTO event, long now, long intervalMs, double positionDeltaSeconds) {
+            if (lastForwardedAt == 0 || now - lastForwardedAt >= intervalMs) {
+                return true;
+            }
+            return event.getCurrentTime() != null && lastForwardedPosition != null
+                    && Math.abs(event.getCurrentTime() - lastForwardedPosition) >= positionDeltaSeconds;
+        }
+
+        private void markForwarded(VideoEventDTO event, long now) {
+            lastForwardedAt = now;
+            if (event.getCurrentTime() != null) {
+                lastForwardedPosition = event.getCurrentTime();
+            }
+        }
+    }
+}
@@ -1,73 +1,370 @@
 package com.harsh.metricsPlay.service;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.ResourceLoader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 
+import com.harsh.metricsPlay.exception.RangeNotSatisfiableException;
+import com.harsh.metricsPlay.model.dto.ByteRange;
+import com.harsh.metricsPlay.model.dto.FaststartReportDTO;
+import com.harsh.metricsPlay.model.dto.FilmStreamDescriptor;
+import com.harsh.metricsPlay.model.dto.SeekPointDTO;
+import com.harsh.metricsPlay.model.dto.VideoFileMetadata;
 import com.harsh.metricsPlay.model.dto.VideoStreamDTO;
+import com.harsh.metricsPlay.service.streaming.FaststartService;
+import com.harsh.metricsPlay.service.streaming.FilmStreamCache;
+import com.harsh.metricsPlay.service.streaming.Mp4IndexService;
+import com.harsh.metricsPlay.service.streaming.Mp4SampleIndex;
+import com.harsh.metricsPlay.service.streaming.StreamIoScheduler;
+import com.harsh.metricsPlay.service.streaming.VideoFileMetadataCache;
+import com.harsh.metricsPlay.service.streaming.VideoSegmentCache;
 
 import lombok.extern.slf4j.Slf4j;
 
 @Service
 @Slf4j
 public class StreamingService {
-    
-    private final ResourceLoader resourceLoader;
+
+    private final VideoSegmentCache segmentCache;
+    private final VideoFileMetadataCache metadataCache;
+    private final FilmStreamCache filmCache;
+    private final Mp4IndexService mp4IndexService;
+    private final FaststartService faststartService;
+    private final StreamIoScheduler ioScheduler;
     private final String VIDEO_PATH = "/app/videos/";
+    private static final String BYTES_UNIT = "bytes=";
+
+    @Value("${streaming.max-chunk-size:2097152}")
+    private long maxChunkSize;
+
+    @Value("${streaming.max-ranges:8}")
+    private int maxRanges;
+
+    public StreamingService(VideoSegmentCache segmentCache, VideoFileMetadataCache metadataCache,
+                            FilmStreamCache filmCache, Mp4IndexService mp4IndexService,
+                            FaststartService faststartService, StreamIoScheduler ioScheduler) {
+        this.segmentCache = segmentCache;
+        this.metadataCache = metadataCache;
+        this.filmCache = filmCache;
+        this.mp4IndexService = mp4IndexService;
+        this.faststartService = faststartService;
+        this.ioScheduler = ioScheduler;
+    }
+
+    // Path actually served for a catalogue file: its faststart copy once one has been written
+    public Path getVideoPath(String filename) {
+        return faststartService.resolve(Paths.get(VIDEO_PATH + filename));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void scanVideoLibrary() {
+        faststartService.scan(Paths.get(VIDEO_PATH));
+    }
+
+    public List<FaststartReportDTO> getFaststartReport() {
+        return faststartService.getReport();
+    }
+
+    /**
+     * Moves the range to the response from mapped segments or the file channel, nothing is staged
+     * on the heap. With an I/O scheduler rate cap, the range goes out in quantum-sized chunks, each
+     * granted to {@code flowKey} in turn with the other active streams.
+     */
+    public void transferRange(Path path, long start, long length, long fileSize, OutputStream out, String flowKey) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        StreamIoScheduler.Flow flow = ioScheduler.isShaping() ? ioScheduler.flow(flowKey) : null;
+        if (segmentCache.isEnabled()) {
+            transferFromSegments(path, start, length, fileSize, target, flow);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long count = remaining;
+                if (flow != null) {
+                    count = Math.min(remaining, ioScheduler.getQuantum());
+                    ioScheduler.acquire(flow, (int) count);
+                }
+                long sent = channel.transferTo(position, count, target);
+                if (sent <= 0) {
+                    log.warn("Short transfer for {} at position {} ({} bytes left)", path, position, remaining);
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    public boolean isSegmentCacheEnabled() {
+        return segmentCache.isEnabled();
+    }
 
-    public StreamingService(ResourceLoader resourceLoader) {
-        this.resourceLoader = resourceLoader;
+    public boolean isIoSchedulerShaping() {
+        return ioScheduler.isShaping();
     }
 
-    public Resource getVideo(String filename) {
-        log.debug("Fetching video resource: {}", "file:" + VIDEO_PATH + filename);
-        return resourceLoader.getResource("file:" + VIDEO_PATH + filename);
+    public Map<String, Object> getStreamingStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("segmentCache", segmentCache.getStats());
+        stats.put("filmCache", filmCache.getStats());
+        stats.put("ioScheduler", ioScheduler.getStats());
+        return stats;
     }
 
-    public byte[] readByteRange(String filename, long start, long end) throws IOException {
-        Path path = Paths.get(VIDEO_PATH + filename);
-        try (InputStream inputStream = Files.newInputStream(path)) {
-            inputStream.skip(start);
-            long contentLength = end - start + 1;
-            return inputStream.readNBytes((int) contentLength);
+    private void transferFromSegments(Path path, long start, long length, long fileSize, WritableByteChannel target,
+                                      StreamIoScheduler.Flow flow) throws IOException {
+        int segmentSize = segmentCache.getSegmentSize();
+        long position = start;
+        long end = start + length;
+        while (position < end) {
+            long index = position / segmentSize;
+            ByteBuffer segment = segmentCache.getSegment(path, index, fileSize);
+            int offset = (int) (position - index * segmentSize);
+            int count = (int) Math.min(end - position, segment.limit() - offset);
+            if (count <= 0) {
+                log.warn("Short segment {} for {} at position {} ({} bytes left)", index, path, position, end - position);
+                break;
+            }
+            if (flow != null) {
+                count = Math.min(count, ioScheduler.getQuantum());
+                ioScheduler.acquire(flow, count);
+            }
+            segment.limit(offset + count).position(offset);
+            while (segment.hasRemaining()) {
+                target.write(segment);
+            }
+            position += count;
         }
     }
 
-    public VideoStreamDTO getFilmChunk(String videoFilename, String rangeHeader) {
+    /**
+     * Resolves the file for one request of a playback; film and file metadata both come from
+     * memory. Byte offsets differ between an original and its faststart copy, so a Range request
+     * stays on the original when its If-Range names the original or when this playback started
+     * on it before the copy was ready.
+     */
+    public FilmStreamDescriptor resolveFilmStream(Long filmId, String playbackKey, boolean rangeRequest,
+                                                  String ifRange) throws IOException {
+        FilmStreamCache.CachedFilm film = filmCache.get(filmId);
+        Path original = Paths.get(VIDEO_PATH + film.videoFilename());
+        Path path = faststartService.resolve(original, playbackKey, rangeRequest);
+        if (rangeRequest && ifRange != null && !path.equals(original)) {
+            VideoFileMetadata originalVideo = metadataCache.get(original);
+            if (originalVideo != null && isIfRangeFresh(ifRange, originalVideo)) {
+                path = original;
+            }
+        }
+        VideoFileMetadata video = metadataCache.get(path);
+        if (video == null) {
+            // Don't pin a stale mapping, the next request re-reads the film row
+            filmCache.invalidate(filmId);
+        }
+        return FilmStreamDescriptor.builder()
+                .filmId(filmId)
+                .title(film.title())
+                .videoFilename(film.videoFilename())
+                .video(video)
+                .build();
+    }
+
+    /**
+     * Resolves a playback time to the byte offset of the keyframe at or before it, or null
+     * when the film's file has no usable MP4 sample index.
+     */
+    public SeekPointDTO findSeekPoint(FilmStreamDescriptor film, double seconds) {
+        Mp4SampleIndex index = mp4IndexService.getIndex(film.getVideo());
+        if (index == null || index.size() == 0) {
+            return null;
+        }
+        int keyframe = index.keyframeAtOrBefore(Math.max(0, seconds));
+        return SeekPointDTO.builder()
+                .filmId(film.getFilmId())
+                .requestedTime(seconds)
+                .keyframeTime(index.getKeyframeTime(keyframe))
+                .byteOffset(index.getKeyframeOffset(keyframe))
+                .duration(index.getDurationSeconds())
+                .fileSize(film.getVideo().getFileSize())
+                .build();
+    }
+
+    /**
+     * Evaluates an {@code If-Range} validator. A stale (or weak) validator means the client's
+     * partial copy is outdated and the Range header must be ignored.
+     */
+    public boolean isIfRangeFresh(String ifRange, VideoFileMetadata video) {
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(video.getEtag());
+        }
+        if (ifRange.startsWith("W/")) {
+            return false;
+        }
         try {
-            Resource videoResource = getVideo(videoFilename);
-            if (videoResource.exists()) {
-                log.debug("Resource exists ! {}", videoFilename);
-                long fileSize = videoResource.contentLength();
-                long start = 0;
-                long end = fileSize - 1;
-
-                if (rangeHeader != null && rangeHeader.startsWith("bytes=")) {
-                    String[] ranges = rangeHeader.substring(6).split("-");
-                    start = Long.parseLong(ranges[0]);
-                    if (ranges.length > 1 && !ranges[1].isEmpty()) {
-                        end = Long.parseLong(ranges[1]);
+            ZonedDateTime date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return date.toEpochSecond() == video.getLastModified() / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    public VideoStreamDTO getFilmChunk(VideoFileMetadata video, String rangeHeader) {
+        long fileSize = video.getFileSize();
+        List<ByteRange> ranges = parseRangeHeader(rangeHeader, fileSize);
+        boolean partial = ranges != null;
+        if (ranges == null) {
+            ranges = fileSize > 0 ? List.of(new ByteRange(0, fileSize - 1)) : List.of();
+        }
+        ranges = capRanges(ranges);
+
+        long contentLength = 0;
+        for (ByteRange range : ranges) {
+            contentLength += range.getLength();
+        }
+        // Anything short of the whole file has to go out as 206 with a Content-Range
+        partial = partial || contentLength < fileSize;
+
+        ByteRange first = ranges.isEmpty() ? new ByteRange(0, -1) : ranges.get(0);
+        return VideoStreamDTO.builder()
+                .path(video.getPath())
+                .start(first.getStart())
+                .end(first.getEnd())
+                .fileSize(fileSize)
+                .contentLength(contentLength)
+                .ranges(ranges)
+                .partial(partial)
+                .build();
+    }
+
+    public long multipartLength(VideoStreamDTO stream, String contentType, String boundary) {
+        long length = 0;
+        for (ByteRange range : stream.getRanges()) {
+            length += partHeader(range, stream.getFileSize(), contentType, boundary).length + range.getLength();
+        }
+        return length + closingBoundary(boundary).length;
+    }
+
+    public void writeMultipart(VideoStreamDTO stream, String contentType, String boundary, OutputStream out,
+                               String flowKey) throws IOException {
+        for (ByteRange range : stream.getRanges()) {
+            out.write(partHeader(range, stream.getFileSize(), contentType, boundary));
+            transferRange(stream.getPath(), range.getStart(), range.getLength(), stream.getFileSize(), out, flowKey);
+        }
+        out.write(closingBoundary(boundary));
+        out.flush();
+    }
+
+    /**
+     * Parses a {@code Range} header into sorted, coalesced byte ranges clamped to the file.
+     * Returns null when there is no usable header (the whole file is served), and throws
+     * when the header is valid but none of its ranges overlap the file.
+     */
+    List<ByteRange> parseRangeHeader(String rangeHeader, long fileSize) {
+        if (rangeHeader == null || !rangeHeader.startsWith(BYTES_UNIT)) {
+            return null;
+        }
+        List<ByteRange> ranges = new ArrayList<>();
+        try {
+            for (String spec : rangeHeader.substring(BYTES_UNIT.length()).split(",")) {
+                spec = spec.trim();
+                int dash = spec.indexOf('-');
+                if (dash < 0) {
+                    return null;
+                }
+                String first = spec.substring(0, dash).trim();
+                String last = spec.substring(dash + 1).trim();
+                if (first.isEmpty()) {
+                    // Suffix range: the final N bytes
+                    long suffixLength = Long.parseLong(last);
+                    if (suffixLength > 0 && fileSize > 0) {
+                        ranges.add(new ByteRange(Math.max(0, fileSize - suffixLength), fileSize - 1));
                     }
-                    end = Math.min(end, fileSize - 1);
+                    continue;
+                }
+                long start = Long.parseLong(first);
+                long end = last.isEmpty() ? fileSize - 1 : Long.parseLong(last);
+                if (start < 0 || end < start) {
+                    return null;
                 }
-                return VideoStreamDTO.builder()
-                        .data(readByteRange(videoFilename, start, end))
-                        .start(start)
-                        .end(end)
-                        .fileSize(fileSize)
-                        .contentLength(end - start + 1)
-                        .build();
+                if (start < fileSize) {
+                    ranges.add(new ByteRange(start, Math.min(end, fileSize - 1)));
+                }
+            }
+        } catch (NumberFormatException e) {
+            log.debug("Ignoring malformed Range header: {}", rangeHeader);
+            return null;
+        }
+        if (ranges.isEmpty()) {
+            throw new RangeNotSatisfiableException(rangeHeader, fileSize);
+        }
+
+        ranges.sort(Comparator.comparingLong(ByteRange::getStart));
+        List<ByteRange> merged = new ArrayList<>();
+        for (ByteRange range : ranges) {
+            ByteRange previous = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (previous != null && range.getStart() <= previous.getEnd() + 1) {
+                previous.setEnd(Math.max(previous.getEnd(), range.getEnd()));
+            } else {
+                merged.add(range);
+            }
+        }
+        if (merged.size() > maxRanges) {
+            // Too many fragments to be worth a multipart body, answer with the span instead
+            return new ArrayList<>(List.of(new ByteRange(merged.get(0).getStart(), merged.get(merged.size() - 1).getEnd())));
+        }
+        return merged;
+    }
+
+    // Keeps the total bytes of one response under streaming.max-chunk-size
+    private List<ByteRange> capRanges(List<ByteRange> ranges) {
+        List<ByteRange> capped = new ArrayList<>();
+        long budget = maxChunkSize;
+        for (ByteRange range : ranges) {
+            if (budget <= 0) {
+                break;
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            long length = Math.min(range.getLength(), budget);
+            capped.add(new ByteRange(range.getStart(), range.getStart() + length - 1));
+            budget -= length;
         }
-        return null;
+        return capped;
+    }
+
+    private byte[] partHeader(ByteRange range, long fileSize, String contentType, String boundary) {
+        String header = "\r\n--" + boundary + "\r\n"
+                + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                + HttpHeaders.CONTENT_RANGE + ": bytes " + range.getStart() + "-" + range.getEnd() + "/" + fileSize + "\r\n"
+                + "\r\n";
+        return header.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private byte[] closingBoundary(String boundary) {
+        return ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
     }
 
 }
@@ -0,0 +1,259 @@
+package com.harsh.metricsPlay.service.analytics;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.harsh.metricsPlay.model.entity.FilmRollup;
+import com.harsh.metricsPlay.model.entity.FilmRollup.Granularity;
+import com.harsh.metricsPlay.model.events.VideoEventDTO;
+import com.harsh.metricsPlay.repository.FilmRollupRepository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-film counters in film_rollups at minute, hour and day granularity. Consumed events are
+ * counted into in-memory minute buckets; a minute is written (added onto any row already there)
+ * once it has been closed for grace-seconds, so late events still land in the right bucket.
+ * Compaction then rebuilds hour rows from minute rows and day rows from hour rows, overwriting
+ * them, which makes it safe to re-run. Distinct counts cannot be added up, so unique sessions
+ * are never carried in the buckets: every level recomputes them from the viewing_sessions that
+ * overlap the bucket. Old minute and hour rows are deleted after their retention.
+ */
+@Service
+@Slf4j
+public class FilmRollupService {
+
+    // Counters add onto an existing row (a late flush of the same minute), unique sessions are recounted
+    private static final String UPSERT_MINUTE_SQL = "INSERT INTO film_rollups (film_id, granularity, bucket_start, plays, pauses, "
+            + "completions, unique_sessions, watch_seconds) SELECT v.film_id, 'MINUTE', v.bucket, v.plays, v.pauses, v.completions, "
+            + "(SELECT COUNT(*) FROM viewing_sessions s WHERE s.film_id = v.film_id AND s.start_time < v.bucket + interval '1 minute' "
+            + "AND COALESCE(s.last_event_time, s.start_time) >= v.bucket), v.watch_seconds "
+            + "FROM (VALUES (CAST(? AS BIGINT), CAST(? AS TIMESTAMP), CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT), "
+            + "CAST(? AS DOUBLE PRECISION))) AS v (film_id, bucket, plays, pauses, completions, watch_seconds) "
+            + "ON CONFLICT (film_id, granularity, bucket_start) DO UPDATE SET plays = film_rollups.plays + EXCLUDED.plays, "
+            + "pauses = film_rollups.pauses + EXCLUDED.pauses, completions = film_rollups.completions + EXCLUDED.completions, "
+            + "unique_sessions = EXCLUDED.unique_sessions, watch_seconds = film_rollups.watch_seconds + EXCLUDED.watch_seconds";
+
+    // %1$s target granularity, %2$s date_trunc unit, %3$s source granularity
+    private static final String COMPACT_SQL = "WITH agg AS (SELECT film_id, date_trunc('%2$s', bucket_start) AS bucket, "
+            + "SUM(plays) AS plays, SUM(pauses) AS pauses, SUM(completions) AS completions, SUM(watch_seconds) AS watch_seconds "
+            + "FROM film_rollups WHERE granularity = '%3$s' AND bucket_start >= ? AND bucket_start < ? GROUP BY 1, 2) "
+            + "INSERT INTO film_rollups (film_id, granularity, bucket_start, plays, pauses, completions, unique_sessions, watch_seconds) "
+            + "SELECT agg.film_id, '%1$s', agg.bucket, agg.plays, agg.pauses, agg.completions, "
+            + "(SELECT COUNT(*) FROM viewing_sessions s WHERE s.film_id = agg.film_id AND s.start_time < agg.bucket + interval '1 %2$s' "
+            + "AND COALESCE(s.last_event_time, s.start_time) >= agg.bucket), agg.watch_seconds FROM agg "
+            + "ON CONFLICT (film_id, granularity, bucket_start) DO UPDATE SET plays = EXCLUDED.plays, pauses = EXCLUDED.pauses, "
+            + "completions = EXCLUDED.completions, unique_sessions = EXCLUDED.unique_sessions, watch_seconds = EXCLUDED.watch_seconds";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmRollupRepository rollupRepository;
+
+    @Value("${analytics.rollups.grace-seconds:60}")
+    private long graceSeconds;
+
+    @Value("${analytics.rollups.recompact-hours:2}")
+    private long recompactHours;
+
+    @Value("${analytics.rollups.minute-retention-days:7}")
+    private long minuteRetentionDays;
+
+    @Value("${analytics.rollups.hour-retention-days:90}")
+    private long hourRetentionDays;
+
+    private final ConcurrentHashMap<BucketKey, MinuteBucket> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicLong eventsCounted = new AtomicLong();
+    private final AtomicLong minuteRowsWritten = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public FilmRollupService(JdbcTemplate jdbcTemplate, FilmRollupRepository rollupRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rollupRepository = rollupRepository;
+    }
+
+    /**
+     * @param watchedSeconds playback time this event credited to its viewing session
+     */
+    public void record(VideoEventDTO event, double watchedSeconds) {
+        if (event.getFilmId() == null || event.getTimestamp() == null) {
+            return;
+        }
+        BucketKey key = new BucketKey(event.getFilmId(), event.getTimestamp().truncatedTo(ChronoUnit.MINUTES));
+        while (true) {
+            MinuteBucket bucket = buckets.computeIfAbsent(key, k -> new MinuteBucket());
+            synchronized (bucket) {
+                if (bucket.flushed) {
+                    continue; // taken by a flush, the next one starts a fresh bucket
+                }
+                bucket.add(event, watchedSeconds);
+                break;
+            }
+        }
+        eventsCounted.incrementAndGet();
+    }
+
+    public List<FilmRollup> getRollups(Long filmId, Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        return rollupRepository.findByFilmIdAndGranularityAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStart(
+                filmId, granularity, from, to);
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.rollups.flush-interval-ms:10000}")
+    public void flush() {
+        flushClosedMinutes(LocalDateTime.now().minusSeconds(graceSeconds));
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.rollups.compaction-interval-ms:300000}",
+            initialDelayString = "${analytics.rollups.compaction-interval-ms:300000}")
+    public void compact() {
+        try {
+            LocalDateTime settled = LocalDateTime.now().minusSeconds(graceSeconds);
+            LocalDateTime hourEnd = settled.truncatedTo(ChronoUnit.HOURS);
+            LocalDateTime hourStart = resumePoint(Granularity.HOUR, Granularity.MINUTE, ChronoUnit.HOURS)
+                    .minusHours(recompactHours);
+            int hours = compact(Granularity.HOUR, "hour", Granularity.MINUTE, hourStart, hourEnd);
+
+            LocalDateTime dayEnd = settled.truncatedTo(ChronoUnit.DAYS);
+            LocalDateTime dayStart = resumePoint(Granularity.DAY, Granularity.HOUR, ChronoUnit.DAYS).minusDays(1);
+            int days = compact(Granularity.DAY, "day", Granularity.HOUR, dayStart, dayEnd);
+
+            jdbcTemplate.update("DELETE FROM film_rollups WHERE granularity = 'MINUTE' AND bucket_start < ?",
+                    Timestamp.valueOf(settled.minusDays(minuteRetentionDays)));
+            jdbcTemplate.update("DELETE FROM film_rollups WHERE granularity = 'HOUR' AND bucket_start < ?",
+                    Timestamp.valueOf(settled.minusDays(hourRetentionDays)));
+            compactions.incrementAndGet();
+            log.debug("[ROLLUPS] Compacted {} hour rows and {} day rows", hours, days);
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            log.error("[ROLLUPS] Compaction failed: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("openBuckets", buckets.size());
+        stats.put("eventsCounted", eventsCounted.get());
+        stats.put("minuteRowsWritten", minuteRowsWritten.get());
+        stats.put("compactions", compactions.get());
+        stats.put("failures", failures.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushClosedMinutes(LocalDateTime.MAX);
+    }
+
+    private void flushClosedMinutes(LocalDateTime closedBefore) {
+        List<Object[]> rows = new ArrayList<>();
+        List<Map.Entry<BucketKey, MinuteBucket>> taken = new ArrayList<>();
+        buckets.forEach((key, bucket) -> {
+            if (key.minute().plusMinutes(1).isAfter(closedBefore)) {
+                return;
+            }
+            synchronized (bucket) {
+                bucket.flushed = true;
+                buckets.remove(key, bucket);
+                rows.add(bucket.toRow(key));
+                taken.add(Map.entry(key, bucket));
+            }
+        });
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_MINUTE_SQL, rows, rows.size(), FilmRollupService::bind);
+            minuteRowsWritten.addAndGet(rows.size());
+            log.debug("[ROLLUPS] Wrote {} minute rows", rows.size());
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            log.error("[ROLLUPS] Failed to write {} minute rows, keeping them for the next flush: {}", rows.size(), e.getMessage());
+            taken.forEach(entry -> buckets.merge(entry.getKey(), entry.getValue().reopen(), MinuteBucket::mergeFrom));
+        }
+    }
+
+    // Where the previous compaction left off, or the oldest source row when there has been none
+    private LocalDateTime resumePoint(Granularity target, Granularity source, ChronoUnit unit) {
+        Timestamp last = jdbcTemplate.queryForObject("SELECT COALESCE((SELECT MAX(bucket_start) FROM film_rollups WHERE granularity = ?), "
+                + "(SELECT MIN(bucket_start) FROM film_rollups WHERE granularity = ?))", Timestamp.class, target.name(), source.name());
+        return last != null ? last.toLocalDateTime().truncatedTo(unit) : LocalDateTime.now().truncatedTo(unit);
+    }
+
+    private int compact(Granularity target, String unit, Granularity source, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return 0;
+        }
+        return jdbcTemplate.update(String.format(Locale.ROOT, COMPACT_SQL, target.name(), unit, source.name()),
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    private static void bind(PreparedStatement ps, Object[] row) throws SQLException {
+        for (int i = 0; i < row.length; i++) {
+            ps.setObject(i + 1, row[i]);
+        }
+    }
+
+    private record BucketKey(Long filmId, LocalDateTime minute) {
+    }
+
+    private static final class MinuteBucket {
+        private long plays;
+        private long pauses;
+        private long completions;
+        private double watchSeconds;
+        private boolean flushed;
+
+        private void add(VideoEventDTO event, double watchedSeconds) {
+            String type = event.getEventType() != null ? event.getEventType().toLowerCase(Locale.ROOT) : "";
+            switch (type) {
+                case "play":
+                    plays++;
+                    break;
+                case "pause":
+                    pauses++;
+                    break;
+                case "ended":
+                    completions++;
+                    break;
+                default:
+                    break;
+            }
+            watchSeconds += watchedSeconds;
+        }
+
+        private MinuteBucket reopen() {
+            flushed = false;
+            return this;
+        }
+
+        private MinuteBucket mergeFrom(MinuteBucket other) {
+            synchronized (this) {
+                plays += other.plays;
+                pauses += other.pauses;
+                completions += other.completions;
+                watchSeconds += other.watchSeconds;
+                return this;
+            }
+        }
+
+        private Object[] toRow(BucketKey key) {
+            return new Object[] {key.filmId(), Timestamp.valueOf(key.minute()), plays, pauses, completions, watchSeconds};
+        }
+    }
+}
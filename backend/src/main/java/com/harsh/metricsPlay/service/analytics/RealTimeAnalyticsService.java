@@ -2,15 +2,23 @@ package com.harsh.metricsPlay.service.analytics;
 
 import com.harsh.metricsPlay.model.events.VideoEventDTO;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
@@ -19,32 +27,95 @@ public class RealTimeAnalyticsService {
 
     private final RedisTemplate<String, Object> redisTemplate;
     private final SimpMessagingTemplate messagingTemplate;
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> viewersApplyScript;
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> viewersReapScript;
 
-    private static final String CONCURRENT_VIEWERS_KEY = "concurrent_viewers";
+    @Value("${analytics.viewers.heartbeat-timeout-seconds:60}")
+    private long heartbeatTimeoutSeconds;
+
+    // Sorted set per film: member = user, score = last heartbeat in epoch seconds
+    private static final String VIEWER_HEARTBEATS_KEY = "viewer_heartbeats";
+    // Film ids whose viewer set is non-empty, and the sum of those sets
+    private static final String ACTIVE_FILMS_KEY = "active_films";
+    private static final String TOTAL_VIEWERS_KEY = "total_viewers";
+    private static final long VIEWERS_TTL_SECONDS = 300;
+
+    private static final StringRedisSerializer SCRIPT_SERIALIZER = new StringRedisSerializer();
+
+    /**
+     * Loads the viewer scripts up front so the first event already goes out as EVALSHA.
+     * The executor falls back to EVAL on NOSCRIPT anyway, so a failure here is not fatal.
+     */
+    @PostConstruct
+    public void preloadScripts() {
+        for (RedisScript<?> script : List.of(viewersApplyScript, viewersReapScript)) {
+            try {
+                byte[] body = script.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+                String sha = redisTemplate.execute((RedisCallback<String>) connection -> scriptLoad(connection, body));
+                log.info("[VIEWERS] Preloaded viewer script {}", sha);
+                if (sha != null && !sha.equals(script.getSha1())) {
+                    log.warn("[VIEWERS] Redis returned SHA {} for a viewer script, expected {}", sha, script.getSha1());
+                }
+            } catch (Exception e) {
+                log.warn("[VIEWERS] Could not preload a viewer script, it will be loaded on first use: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drops viewers whose last heartbeat is older than heartbeat-timeout-seconds, so a closed
+     * tab stops counting even while others keep watching, and rebuilds the total counter.
+     * Only films whose count changed are broadcast, emptied films included with 0.
+     */
+    @Scheduled(fixedDelayString = "${analytics.viewers.reap-interval-ms:15000}",
+            initialDelayString = "${analytics.viewers.reap-interval-ms:15000}")
+    public void reapStaleViewers() {
+        try {
+            // The script gets every key it touches, so the registry is read here first
+            Set<byte[]> films = redisTemplate.execute((RedisCallback<Set<byte[]>>) connection ->
+                    connection.setCommands().sMembers(ACTIVE_FILMS_KEY.getBytes(StandardCharsets.UTF_8)));
+            List<String> keys = new ArrayList<>();
+            List<Object> args = new ArrayList<>();
+            keys.add(ACTIVE_FILMS_KEY);
+            keys.add(TOTAL_VIEWERS_KEY);
+            args.add(String.valueOf(heartbeatTimeoutSeconds));
+            if (films != null) {
+                for (byte[] film : films) {
+                    String filmId = new String(film, StandardCharsets.UTF_8);
+                    keys.add(VIEWER_HEARTBEATS_KEY + ":" + filmId);
+                    args.add(filmId);
+                }
+            }
+            List<Object> result = runScript(viewersReapScript, keys, args.toArray());
+            Map<Long, Long> changed = changedFilmCounts(result);
+            if (changed.isEmpty()) {
+                return;
+            }
+            changed.forEach(this::sendViewerCount);
+            sendTotalViewers(toLong(result.get(0)));
+            log.debug("[VIEWERS] Reaped stale viewers from {} films", changed.size());
+        } catch (Exception e) {
+            log.warn("[VIEWERS] Stale viewer reaping failed: {}", e.getMessage());
+        }
+    }
 
     public void handlePlayEvent(VideoEventDTO event) {
         log.info("[VIEWERS] User {} started watching film {}", event.getUserId(), event.getFilmId());
-        String viewersKey = CONCURRENT_VIEWERS_KEY + ":" + event.getFilmId();
-        redisTemplate.opsForSet().add(viewersKey, event.getUserId());
-        redisTemplate.expire(viewersKey, 5, TimeUnit.MINUTES);
-        broadcastViewerCount(event.getFilmId());
+        applySingle(event, "join");
         log.info("[VIEWERS] Added user {} to viewers of film {}", event.getUserId(), event.getFilmId());
     }
 
     public void handleStopEvent(VideoEventDTO event) {
         log.info("[VIEWERS] User {} stopped watching film {}", event.getUserId(), event.getFilmId());
-        String viewersKey = CONCURRENT_VIEWERS_KEY + ":" + event.getFilmId();
-        redisTemplate.opsForSet().remove(viewersKey, event.getUserId());
-        broadcastViewerCount(event.getFilmId());
+        applySingle(event, "leave");
         log.info("[VIEWERS] Removed user {} from viewers of film {}", event.getUserId(), event.getFilmId());
     }
 
     public void handleProgressEvent(VideoEventDTO event) {
         log.info("[VIEWERS] User {} watching film {}", event.getUserId(), event.getFilmId());
-        String viewersKey = CONCURRENT_VIEWERS_KEY + ":" + event.getFilmId();
-        redisTemplate.opsForSet().add(viewersKey, event.getUserId());
-        redisTemplate.expire(viewersKey, 5, TimeUnit.MINUTES);
-        broadcastViewerCount(event.getFilmId());
+        applySingle(event, "heartbeat");
         log.info("[VIEWERS] User {} viewing activity token refreshed for film {}", event.getUserId(), event.getFilmId());
     }
 
@@ -56,15 +127,145 @@ public class RealTimeAnalyticsService {
         handleStopEvent(event);
     }
 
+    /**
+     * Applies a poll's worth of events at once. Only the last event per film and user matters
+     * for the viewer sets, so all of them go to Redis in a single script call, and every
+     * affected film is broadcast once with the counts it returned.
+     */
+    public void handleEvents(List<VideoEventDTO> events) {
+        // filmId -> userId -> op to apply after this batch, in arrival order
+        Map<Long, Map<String, String>> changes = new LinkedHashMap<>();
+        for (VideoEventDTO event : events) {
+            if (event.getFilmId() == null || event.getUserId() == null || event.getEventType() == null) {
+                continue;
+            }
+            String op;
+            switch (event.getEventType().toLowerCase(Locale.ROOT)) {
+                case "play":
+                    op = "join";
+                    break;
+                case "progress":
+                    op = "heartbeat";
+                    break;
+                case "pause":
+                case "ended":
+                    op = "leave";
+                    break;
+                default:
+                    continue;
+            }
+            Map<String, String> users = changes.computeIfAbsent(event.getFilmId(), id -> new LinkedHashMap<>());
+            users.remove(event.getUserId()); // keep the latest event last
+            users.put(event.getUserId(), op);
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        List<Long> films = new ArrayList<>(changes.keySet());
+        List<String> ops = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            int index = i + 1;
+            changes.get(films.get(i)).forEach((userId, op) -> {
+                ops.add(String.valueOf(index));
+                ops.add(op);
+                ops.add(member(userId));
+            });
+        }
+        List<Long> counts = applyViewerOps(films, ops);
+        for (int i = 0; i < films.size(); i++) {
+            sendViewerCount(films.get(i), counts.get(i));
+        }
+        sendTotalViewers(counts.get(films.size()));
+        log.debug("[VIEWERS] Applied {} events across {} films in one script call", events.size(), films.size());
+    }
+
+    public Long getTotalViewers() {
+        byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(TOTAL_VIEWERS_KEY.getBytes(StandardCharsets.UTF_8)));
+        return value != null ? Math.max(0L, Long.parseLong(new String(value, StandardCharsets.UTF_8))) : 0L;
+    }
+
     public Long getConcurrentViewers(Long filmId) {
-        String viewersKey = CONCURRENT_VIEWERS_KEY + ":" + filmId;
-        Long count = redisTemplate.opsForSet().size(viewersKey);
+        String viewersKey = VIEWER_HEARTBEATS_KEY + ":" + filmId;
+        Long count = redisTemplate.opsForZSet().zCard(viewersKey);
         return count != null ? count : 0L;
     }
 
-    private void broadcastViewerCount(Long filmId) {
-        Long viewerCount = getConcurrentViewers(filmId);
-        
+    private void applySingle(VideoEventDTO event, String op) {
+        List<Long> counts = applyViewerOps(List.of(event.getFilmId()), List.of("1", op, member(event.getUserId())));
+        sendViewerCount(event.getFilmId(), counts.get(0));
+        sendTotalViewers(counts.get(1));
+    }
+
+    /**
+     * Runs viewers-apply.lua: one round trip that applies the ops atomically, keeps the active
+     * film registry and the total counter in step, and returns the count of each given film
+     * followed by the total across all films.
+     */
+    private List<Long> applyViewerOps(List<Long> films, List<String> ops) {
+        List<String> keys = new ArrayList<>(films.size() + 2);
+        List<Object> args = new ArrayList<>(films.size() + ops.size() + 2);
+        args.add(String.valueOf(VIEWERS_TTL_SECONDS));
+        args.add(String.valueOf(films.size()));
+        for (Long filmId : films) {
+            keys.add(VIEWER_HEARTBEATS_KEY + ":" + filmId);
+            args.add(String.valueOf(filmId));
+        }
+        keys.add(ACTIVE_FILMS_KEY);
+        keys.add(TOTAL_VIEWERS_KEY);
+        args.addAll(ops);
+
+        List<Object> result = runScript(viewersApplyScript, keys, args.toArray());
+        List<Long> counts = new ArrayList<>(films.size() + 1);
+        for (int i = 0; i <= films.size(); i++) {
+            counts.add(toLong(result != null && i < result.size() ? result.get(i) : null));
+        }
+        return counts;
+    }
+
+    /**
+     * Runs a script by SHA (EVAL on NOSCRIPT) with string keys and arguments. Replies come back
+     * as a list whose bulk strings are decoded as UTF-8 and whose integers stay Longs.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<Object> runScript(RedisScript<List> script, List<String> keys, Object... args) {
+        return (List<Object>) redisTemplate.execute(script, SCRIPT_SERIALIZER, (RedisSerializer) SCRIPT_SERIALIZER, keys, args);
+    }
+
+    // Members are written the way the template's value serializer writes them, so the
+    // scripts and the plain template callers see the same members
+    @SuppressWarnings("unchecked")
+    private String member(String userId) {
+        byte[] bytes = ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(userId);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the film counts out of a viewers-reap.lua reply, {total, film id, count, ...},
+     * keeping the script's order. A reply without films, or with a dangling film id, gives
+     * only the complete pairs.
+     */
+    static Map<Long, Long> changedFilmCounts(List<Object> result) {
+        Map<Long, Long> changed = new LinkedHashMap<>();
+        if (result == null) {
+            return changed;
+        }
+        for (int i = 1; i + 1 < result.size(); i += 2) {
+            changed.put(Long.valueOf(String.valueOf(result.get(i))), toLong(result.get(i + 1)));
+        }
+        return changed;
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+
+    private static String scriptLoad(RedisConnection connection, byte[] body) {
+        return connection.scriptingCommands().scriptLoad(body);
+    }
+
+    private void sendViewerCount(Long filmId, Long viewerCount) {
         // Create update message
         Map<String, Object> update = new HashMap<>();
         update.put("type", "concurrent_viewers");
@@ -74,15 +275,9 @@ public class RealTimeAnalyticsService {
         
         // Also broadcast to video player concurrent viewers 
         messagingTemplate.convertAndSend("/topic/real-time-analytics", update);
-
-        broadcastTotalViewers();
     }
 
-    private void broadcastTotalViewers() {
-        Long totalViewers = 0L;
-        for(int i=1 ; i<=5 ; i++){ // Assuming film IDs range from 1 to 5 for now :D
-            totalViewers += getConcurrentViewers((long)i);
-        }
+    private void sendTotalViewers(Long totalViewers) {
         Map<String, Object> update = new HashMap<>();
         update.put("type", "total_viewers");
         update.put("count", totalViewers);
@@ -0,0 +1,180 @@
+package com.harsh.metricsPlay.service.analytics;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import com.harsh.metricsPlay.model.events.VideoEventDTO;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Approximate unique viewers per film and platform-wide, in HyperLogLog keys:
+ * <pre>
+ *   unique_viewers:{filmId|all}:hour:yyyyMMddHH
+ *   unique_viewers:{filmId|all}:day:yyyyMMdd
+ *   unique_viewers:{filmId|all}:all
+ * </pre>
+ * Each key stays at most 12KB whatever the audience (standard error about 0.81%). Play and
+ * progress events add their user to the hour, day and all-time keys of the event's time; a
+ * range is answered by one PFCOUNT over the day keys it covers whole plus the hour keys at its
+ * edges, which Redis merges on read. Hour and day keys expire after their retention.
+ */
+@Service
+@Slf4j
+public class UniqueViewerService {
+
+    private static final String UNIQUE_VIEWERS_KEY = "unique_viewers";
+    private static final String PLATFORM = "all";
+    private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHH", Locale.ROOT);
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd", Locale.ROOT);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${analytics.unique-viewers.hour-retention-days:8}")
+    private long hourRetentionDays;
+
+    @Value("${analytics.unique-viewers.day-retention-days:400}")
+    private long dayRetentionDays;
+
+    public UniqueViewerService(RedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public void record(VideoEventDTO event) {
+        recordAll(List.of(event));
+    }
+
+    /**
+     * Adds the viewers of the play and progress events among these, with one PFADD per key
+     * and everything in a single pipelined round trip.
+     */
+    public void recordAll(List<VideoEventDTO> events) {
+        // key -> users to add, and key -> TTL for the hour and day keys (all-time keys never expire)
+        Map<String, Set<String>> members = new LinkedHashMap<>();
+        Map<String, Long> ttls = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (VideoEventDTO event : events) {
+            if (event.getUserId() == null || event.getFilmId() == null || event.getEventType() == null) {
+                continue;
+            }
+            String type = event.getEventType().toLowerCase(Locale.ROOT);
+            if (!type.equals("play") && !type.equals("progress")) {
+                continue;
+            }
+            LocalDateTime at = event.getTimestamp() != null ? event.getTimestamp() : now;
+            for (String scope : List.of(String.valueOf(event.getFilmId()), PLATFORM)) {
+                String hourKey = hourKey(scope, at);
+                String dayKey = dayKey(scope, at);
+                members.computeIfAbsent(hourKey, k -> new LinkedHashSet<>()).add(event.getUserId());
+                members.computeIfAbsent(dayKey, k -> new LinkedHashSet<>()).add(event.getUserId());
+                members.computeIfAbsent(allTimeKey(scope), k -> new LinkedHashSet<>()).add(event.getUserId());
+                ttls.put(hourKey, Duration.ofDays(hourRetentionDays).toSeconds());
+                ttls.put(dayKey, Duration.ofDays(dayRetentionDays).toSeconds());
+            }
+        }
+        if (members.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            members.forEach((key, users) -> add(connection, key, users, ttls.get(key)));
+            return null;
+        });
+        log.debug("[UNIQUE-VIEWERS] Updated {} HyperLogLog keys", members.size());
+    }
+
+    /**
+     * Unique viewers of a film, or of the whole platform when filmId is null, for the current
+     * hour, the current day and all time.
+     */
+    public Map<String, Object> getCurrentUniqueViewers(Long filmId) {
+        String scope = scope(filmId);
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("filmId", filmId);
+        counts.put("hour", count(List.of(hourKey(scope, now))));
+        counts.put("day", count(List.of(dayKey(scope, now))));
+        counts.put("allTime", count(List.of(allTimeKey(scope))));
+        return counts;
+    }
+
+    /**
+     * Unique viewers in [from, to), at hour resolution: from is rounded down and to up to a
+     * whole hour. Ranges reaching past the hour retention are counted from whole days only
+     * at the edges that have no hour keys left.
+     */
+    public long getUniqueViewers(Long filmId, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        if (from.isBefore(to.minusDays(dayRetentionDays))) {
+            throw new IllegalArgumentException("Range is longer than the " + dayRetentionDays + " days kept");
+        }
+        String scope = scope(filmId);
+        LocalDateTime hourHorizon = LocalDateTime.now().minusDays(hourRetentionDays).truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime end = to.truncatedTo(ChronoUnit.HOURS).equals(to) ? to : to.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        LocalDateTime cursor = from.truncatedTo(ChronoUnit.HOURS);
+        List<String> keys = new ArrayList<>();
+        while (cursor.isBefore(end)) {
+            boolean dayStart = cursor.equals(cursor.truncatedTo(ChronoUnit.DAYS));
+            if ((dayStart && !cursor.plusDays(1).isAfter(end)) || cursor.isBefore(hourHorizon)) {
+                keys.add(dayKey(scope, cursor));
+                cursor = cursor.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            } else {
+                keys.add(hourKey(scope, cursor));
+                cursor = cursor.plusHours(1);
+            }
+        }
+        return count(keys);
+    }
+
+    private long count(List<String> keys) {
+        Long count = redisTemplate.opsForHyperLogLog().size(keys.toArray(new String[0]));
+        return count != null ? count : 0L;
+    }
+
+    private static void add(RedisConnection connection, String key, Set<String> users, Long ttlSeconds) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        byte[][] rawUsers = new byte[users.size()][];
+        int i = 0;
+        for (String user : users) {
+            rawUsers[i++] = user.getBytes(StandardCharsets.UTF_8);
+        }
+        connection.hyperLogLogCommands().pfAdd(rawKey, rawUsers);
+        if (ttlSeconds != null) {
+            connection.keyCommands().expire(rawKey, ttlSeconds);
+        }
+    }
+
+    private static String scope(Long filmId) {
+        return filmId != null ? String.valueOf(filmId) : PLATFORM;
+    }
+
+    private static String hourKey(String scope, LocalDateTime at) {
+        return UNIQUE_VIEWERS_KEY + ":" + scope + ":hour:" + HOUR_FORMAT.format(at);
+    }
+
+    private static String dayKey(String scope, LocalDateTime at) {
+        return UNIQUE_VIEWERS_KEY + ":" + scope + ":day:" + DAY_FORMAT.format(at);
+    }
+
+    private static String allTimeKey(String scope) {
+        return UNIQUE_VIEWERS_KEY + ":" + scope + ":all";
+    }
+}
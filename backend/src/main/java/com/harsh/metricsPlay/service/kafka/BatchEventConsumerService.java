@@ -0,0 +1,64 @@
+package com.harsh.metricsPlay.service.kafka;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import com.harsh.metricsPlay.config.KafkaConfig;
+import com.harsh.metricsPlay.model.events.VideoEventDTO;
+import com.harsh.metricsPlay.service.analytics.RealTimeAnalyticsService;
+import com.harsh.metricsPlay.service.analytics.UniqueViewerService;
+import com.harsh.metricsPlay.service.streaming.PlaybackPrefetchService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Batch counterpart of {@link EventConsumerService}, enabled with kafka.consumer.batch-mode:
+ * takes a whole poll, applies it to the viewer sets in one Redis script call, broadcasts once per
+ * affected film and commits the poll's offsets with a single acknowledgment. Uses the same
+ * consumer group, so switching modes resumes from the same offsets.
+ */
+@Service
+@ConditionalOnProperty(name = "kafka.consumer.batch-mode", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class BatchEventConsumerService {
+
+    private final RealTimeAnalyticsService analyticsService;
+    private final PlaybackPrefetchService prefetchService;
+    private final UniqueViewerService uniqueViewerService;
+
+    @KafkaListener(topics = KafkaConfig.VIDEO_EVENTS_TOPIC, groupId = "video-events-processor",
+            containerFactory = "batchListenerContainerFactory")
+    public void processVideoEvents(List<ConsumerRecord<String, VideoEventDTO>> records, Acknowledgment acknowledgment) {
+        List<VideoEventDTO> events = new ArrayList<>(records.size());
+        try {
+            for (ConsumerRecord<String, VideoEventDTO> record : records) {
+                VideoEventDTO event = record.value();
+                if (event == null || event.getEventType() == null) {
+                    continue;
+                }
+                String eventType = event.getEventType().toLowerCase(Locale.ROOT);
+                if (eventType.equals("play") || eventType.equals("progress") || eventType.equals("seek")) {
+                    prefetchService.onPlaybackEvent(event);
+                }
+                events.add(event);
+            }
+            analyticsService.handleEvents(events);
+            uniqueViewerService.recordAll(events);
+            log.info("[KAFKA-CONSUMER] Processed batch of {} video events (offsets {}..{})", records.size(),
+                    records.isEmpty() ? -1 : records.get(0).offset(), records.isEmpty() ? -1 : records.get(records.size() - 1).offset());
+        } catch (Exception e) {
+            log.error("[KAFKA-CONSUMER] Error processing batch of {} video events: {}", records.size(), e.getMessage(), e);
+        }
+        // Viewer counts are live state, a failed batch is not worth redelivering (same as the per-record path)
+        acknowledgment.acknowledge();
+    }
+}
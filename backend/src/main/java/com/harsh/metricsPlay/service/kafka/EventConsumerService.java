@@ -1,5 +1,6 @@
 package com.harsh.metricsPlay.service.kafka;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
@@ -10,16 +11,22 @@ import org.springframework.stereotype.Service;
 import com.harsh.metricsPlay.config.KafkaConfig;
 import com.harsh.metricsPlay.model.events.VideoEventDTO;
 import com.harsh.metricsPlay.service.analytics.RealTimeAnalyticsService;
+import com.harsh.metricsPlay.service.analytics.UniqueViewerService;
+import com.harsh.metricsPlay.service.streaming.PlaybackPrefetchService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+// Per-record mode; BatchEventConsumerService takes over when kafka.consumer.batch-mode is true
 @Service
+@ConditionalOnProperty(name = "kafka.consumer.batch-mode", havingValue = "false", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
 public class EventConsumerService {
 
     private final RealTimeAnalyticsService analyticsService;
+    private final PlaybackPrefetchService prefetchService;
+    private final UniqueViewerService uniqueViewerService;
 
     @KafkaListener(topics = KafkaConfig.VIDEO_EVENTS_TOPIC, groupId = "video-events-processor")
     public void processVideoEvent(@Payload VideoEventDTO event,
@@ -30,7 +37,11 @@ public class EventConsumerService {
         try {
             log.info("[KAFKA-CONSUMER] Received video event from topic: {}, partition: {}, offset: {} with details : {}", 
                     topic, partition, offset, event);
-            switch (event.getEventType().toLowerCase()) {
+            String eventType = event.getEventType().toLowerCase();
+            if (eventType.equals("play") || eventType.equals("progress") || eventType.equals("seek")) {
+                prefetchService.onPlaybackEvent(event);
+            }
+            switch (eventType) {
                 case "play":
                     log.info("[KAFKA-CONSUMER] Routing PLAY event to analytics service");
                     analyticsService.handlePlayEvent(event);
@@ -51,6 +62,7 @@ public class EventConsumerService {
                     log.debug("[KAFKA-CONSUMER] Ignoring {} event (not relevant for viewer tracking)", event.getEventType());
                     break;
             }
+            uniqueViewerService.record(event);
 
             acknowledgment.acknowledge();
             log.info("[KAFKA-CONSUMER] Video event processed successfully at offset: {}", offset);
@@ -0,0 +1,73 @@
+package com.harsh.metricsPlay.service.kafka;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import com.harsh.metricsPlay.config.KafkaConfig;
+import com.harsh.metricsPlay.model.events.VideoEventDTO;
+import com.harsh.metricsPlay.service.EventTrackingService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes video events to Postgres from their own consumer group, so ingestion only has to
+ * publish. A poll is acknowledged after its rows are written; when the write fails the
+ * listener throws and the container's error handler retries the poll with back-off, which is
+ * safe because rows are keyed by event id. A poll that still fails once the retries run out
+ * is dead-lettered to video-events-dlt (see {@link KafkaConfig#persistenceErrorHandler()}).
+ */
+@Service
+@Slf4j
+public class EventPersistenceConsumer {
+
+    private final EventTrackingService eventTrackingService;
+
+    @Value("${events.persistence.consumer-timeout-ms:30000}")
+    private long writeTimeoutMs;
+
+    public EventPersistenceConsumer(EventTrackingService eventTrackingService) {
+        this.eventTrackingService = eventTrackingService;
+    }
+
+    @KafkaListener(topics = KafkaConfig.VIDEO_EVENTS_TOPIC, groupId = "video-events-persistence",
+            containerFactory = "persistenceListenerContainerFactory")
+    public void persistVideoEvents(List<ConsumerRecord<String, VideoEventDTO>> records, Acknowledgment acknowledgment)
+            throws Exception {
+        List<VideoEventDTO> events = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, VideoEventDTO> record : records) {
+            VideoEventDTO event = record.value();
+            if (event == null || event.getFilmId() == null) {
+                log.warn("[KAFKA-PERSISTENCE] Skipping unusable record at partition {}, offset {}", record.partition(), record.offset());
+                continue;
+            }
+            // Records published before producers stamped ids get one derived from their position, stable across redeliveries
+            if (event.getEventId() == null || event.getEventId().isBlank()) {
+                event.setEventId("kafka-" + record.partition() + "-" + record.offset());
+            }
+            // Also part of the row key, so it has to come out the same on every delivery
+            if (event.getTimestamp() == null) {
+                event.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestamp()), ZoneId.systemDefault()));
+            }
+            events.add(event);
+        }
+
+        try {
+            eventTrackingService.trackVideoEvents(events).get(writeTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.error("[KAFKA-PERSISTENCE] Failed to persist {} events, batch will be retried: {}", events.size(), e.getMessage());
+            throw e;
+        }
+        acknowledgment.acknowledge();
+        log.debug("[KAFKA-PERSISTENCE] Persisted {} events", events.size());
+    }
+}
@@ -9,7 +9,11 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @RequiredArgsConstructor
@@ -17,32 +21,65 @@ import java.util.concurrent.CompletableFuture;
 public class EventProducerService {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final EventSpillJournal spillJournal;
 
-    public void sendVideoEvent(VideoEventDTO event) {
-        try {
-            log.info("[KAFKA-PRODUCER] Preparing to send {} event to Kafka topic: {}", 
-                event.getEventType(), KafkaConfig.VIDEO_EVENTS_TOPIC);
-            log.debug("[KAFKA-PRODUCER] Event payload - Film: {}, User: {}, Session: {}, Time: {}s", 
-                event.getFilmId(), event.getUserId(), event.getSessionId(), event.getCurrentTime());
-            
+    /**
+     * Sends a batch without waiting; the producer groups the records per partition
+     * (batch-size/linger), and one summary line is logged once every send completed.
+     */
+    public void sendVideoEvents(List<VideoEventDTO> events) {
+        List<CompletableFuture<SendResult<String, Object>>> futures = new ArrayList<>(events.size());
+        AtomicInteger failed = new AtomicInteger();
+        for (VideoEventDTO event : events) {
+            ensureEventId(event);
             String key = generateVideoEventKey(event);
-            log.debug("[KAFKA-PRODUCER] Generated event key: {}", key);
-            
-            CompletableFuture<SendResult<String, Object>> future = 
-                kafkaTemplate.send(KafkaConfig.VIDEO_EVENTS_TOPIC, key, event);
-            
-            future.whenComplete((result, ex) -> {
-                if (ex == null) {
-                    log.info("[KAFKA-PRODUCER] Video event {} sent successfully to partition {} with offset: {}", 
-                             event.getEventType(), 
-                             result.getRecordMetadata().partition(),
-                             result.getRecordMetadata().offset());
-                } else {
-                    log.error("[KAFKA-PRODUCER] Failed to send video event: {}", event.getEventType(), ex);
-                }
-            });
-        } catch (Exception e) {
-            log.error("[KAFKA-PRODUCER] Error sending video event", e);
+            if (spillJournal.shouldSpill()) {
+                spill(key, event, null);
+                failed.incrementAndGet();
+                continue;
+            }
+            try {
+                CompletableFuture<SendResult<String, Object>> future =
+                    kafkaTemplate.send(KafkaConfig.VIDEO_EVENTS_TOPIC, key, event);
+                futures.add(future.whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        failed.incrementAndGet();
+                        spill(key, event, ex);
+                    }
+                }));
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                spill(key, event, e);
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+            .whenComplete((ignored, ex) -> log.info("[KAFKA-PRODUCER] Batch of {} video events sent, {} journaled for retry",
+                events.size(), failed.get()));
+    }
+
+    /**
+     * Hands an event Kafka did not take to the local journal, which replays it in order once
+     * sends succeed again. Only a full (or disabled) journal loses the event.
+     * <p>
+     * A failed send switches every later event to the journal, but sends already handed to the
+     * producer when it failed can still reach Kafka first. Events with the same key share a
+     * partition and the producer fails the rest of a batch with it, so this mostly reorders
+     * across keys; consumers dedupe by event id and the session aggregator drops strictly
+     * older events.
+     */
+    private void spill(String key, VideoEventDTO event, Throwable cause) {
+        if (cause != null) {
+            log.warn("[KAFKA-PRODUCER] Send of {} event {} failed, journaling it: {}", event.getEventType(), event.getEventId(), cause.getMessage());
+        }
+        if (!spillJournal.append(key, event, cause != null)) {
+            log.error("[KAFKA-PRODUCER] Dropped {} event {}: spill journal is full or disabled", event.getEventType(), event.getEventId());
+        }
+    }
+
+    // The id is what makes downstream persistence idempotent, so nothing goes on the topic without one
+    private void ensureEventId(VideoEventDTO event) {
+        if (event.getEventId() == null || event.getEventId().isBlank()) {
+            event.setEventId(UUID.randomUUID().toString());
         }
     }
 
@@ -0,0 +1,449 @@
+package com.harsh.metricsPlay.service.kafka;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.apache.kafka.common.Metric;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import com.harsh.metricsPlay.config.KafkaConfig;
+import com.harsh.metricsPlay.model.events.VideoEventDTO;
+import com.harsh.metricsPlay.service.kafka.serde.VideoEventBinaryCodec;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local fallback for video events the producer cannot hand to Kafka right now: the broker
+ * failed a send, or the producer buffer is close to full. Events are appended to memory-mapped
+ * segment files (so they survive a process crash; the mapping is forced to disk on every drain
+ * tick) and a drainer thread replays them in append order once sends succeed again. While
+ * anything is journaled, new events are journaled behind it so they do not overtake it.
+ * <p>
+ * Record layout: int length, int CRC32 of the payload, payload (key length, key, event in
+ * {@link VideoEventBinaryCodec} format). A drained record has its length negated; a zero
+ * length marks the end of the written part of a segment.
+ */
+@Component
+@Slf4j
+public class EventSpillJournal {
+
+    private static final int HEADER_BYTES = 8;
+    private static final String SEGMENT_PREFIX = "spill-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Value("${kafka.spill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${kafka.spill.dir:${java.io.tmpdir}/metrics-play-spill}")
+    private String directory;
+
+    @Value("${kafka.spill.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    @Value("${kafka.spill.max-segments:16}")
+    private int maxSegments;
+
+    @Value("${kafka.spill.buffer-low-watermark:0.1}")
+    private double bufferLowWatermark;
+
+    @Value("${kafka.spill.drain-interval-ms:1000}")
+    private long drainIntervalMs;
+
+    @Value("${kafka.spill.drain-batch:500}")
+    private int drainBatch;
+
+    // All guarded by this
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private long nextSegmentId;
+    private long depthBytes;
+
+    // Written under this, read without it on every send
+    private final AtomicLong depth = new AtomicLong();
+
+    private volatile boolean kafkaAvailable = true;
+    private volatile Metric bufferAvailable;
+    private volatile Metric bufferTotal;
+    private Thread drainer;
+    private volatile boolean running;
+
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong drained = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile double drainRate;
+
+    public EventSpillJournal(KafkaTemplate<String, Object> kafkaTemplate) {
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        List<Path> existing;
+        try (Stream<Path> files = Files.list(dir)) {
+            existing = files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX)).sorted().toList();
+        }
+        synchronized (this) {
+            for (Path path : existing) {
+                Segment segment = Segment.open(path, segmentBytes);
+                nextSegmentId = Math.max(nextSegmentId, segment.id + 1);
+                depth.addAndGet(segment.recover());
+                depthBytes += segment.liveBytes;
+                segments.addLast(segment);
+            }
+            releaseDrainedSegments();
+        }
+        if (depth.get() > 0) {
+            log.warn("[KAFKA-SPILL] Found {} journaled events from a previous run, replaying them", depth.get());
+        }
+        running = true;
+        drainer = new Thread(this::drainLoop, "kafka-spill-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * True when the event should go to the journal instead of Kafka: something is journaled
+     * already (order), the last send failed, or the producer buffer is nearly exhausted.
+     */
+    public boolean shouldSpill() {
+        if (!enabled) {
+            return false;
+        }
+        return hasBacklog() || !kafkaAvailable || bufferNearlyFull();
+    }
+
+    public boolean hasBacklog() {
+        return depth.get() > 0;
+    }
+
+    /**
+     * Returns false when the journal is disabled or full, in which case the event is lost.
+     * sendFailed marks Kafka unavailable in the same step as the append, so an event checking
+     * {@link #shouldSpill()} in between cannot be journaled ahead of the failed one.
+     */
+    public boolean append(String key, VideoEventDTO event, boolean sendFailed) {
+        if (!enabled) {
+            return false;
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] eventBytes = VideoEventBinaryCodec.encode(event);
+        int length = 4 + keyBytes.length + eventBytes.length;
+        if (HEADER_BYTES + length + 4 > segmentBytes) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        byte[] payload = new byte[length];
+        payload[0] = (byte) (keyBytes.length >>> 24);
+        payload[1] = (byte) (keyBytes.length >>> 16);
+        payload[2] = (byte) (keyBytes.length >>> 8);
+        payload[3] = (byte) keyBytes.length;
+        System.arraycopy(keyBytes, 0, payload, 4, keyBytes.length);
+        System.arraycopy(eventBytes, 0, payload, 4 + keyBytes.length, eventBytes.length);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        synchronized (this) {
+            if (sendFailed) {
+                kafkaAvailable = false;
+            }
+            try {
+                Segment tail = segments.peekLast();
+                if (tail == null || !tail.fits(length)) {
+                    if (segments.size() >= maxSegments) {
+                        rejected.incrementAndGet();
+                        return false;
+                    }
+                    tail = Segment.create(Paths.get(directory), nextSegmentId++, segmentBytes);
+                    segments.addLast(tail);
+                }
+                tail.append(payload, (int) crc.getValue());
+                depth.incrementAndGet();
+                depthBytes += HEADER_BYTES + length;
+                spilled.incrementAndGet();
+                return true;
+            } catch (IOException e) {
+                rejected.incrementAndGet();
+                log.error("[KAFKA-SPILL] Could not open a journal segment: {}", e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("kafkaAvailable", kafkaAvailable);
+        stats.put("depth", depth.get());
+        stats.put("depthBytes", depthBytes);
+        stats.put("segments", segments.size());
+        stats.put("spilled", spilled.get());
+        stats.put("drained", drained.get());
+        stats.put("rejected", rejected.get());
+        stats.put("drainRatePerSecond", drainRate);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (drainer != null) {
+            drainer.interrupt();
+            drainer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        List<Segment> live;
+        synchronized (this) {
+            live = new ArrayList<>(segments);
+        }
+        live.forEach(Segment::force);
+    }
+
+    private boolean bufferNearlyFull() {
+        try {
+            if (bufferAvailable == null || bufferTotal == null) {
+                kafkaTemplate.metrics().forEach((name, metric) -> {
+                    if ("producer-metrics".equals(name.group()) && "buffer-available-bytes".equals(name.name())) {
+                        bufferAvailable = metric;
+                    } else if ("producer-metrics".equals(name.group()) && "buffer-total-bytes".equals(name.name())) {
+                        bufferTotal = metric;
+                    }
+                });
+                if (bufferAvailable == null || bufferTotal == null) {
+                    return false;
+                }
+            }
+            double total = ((Number) bufferTotal.metricValue()).doubleValue();
+            return total > 0 && ((Number) bufferAvailable.metricValue()).doubleValue() / total < bufferLowWatermark;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void drainLoop() {
+        long lastTick = System.nanoTime();
+        while (running) {
+            try {
+                Thread.sleep(drainIntervalMs);
+                int sent = drainOnce();
+                long now = System.nanoTime();
+                drainRate = sent / Math.max((now - lastTick) / 1_000_000_000d, 0.001);
+                lastTick = now;
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                log.error("[KAFKA-SPILL] Drain pass failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Sends journaled events oldest first until the journal is empty or a send fails
+    private int drainOnce() throws InterruptedException {
+        int total = 0;
+        while (running) {
+            List<Segment> live;
+            List<Entry> batch;
+            synchronized (this) {
+                live = new ArrayList<>(segments);
+                batch = readHead(drainBatch);
+            }
+            // msync can stall on a slow disk, so appends are not held up behind it
+            live.forEach(Segment::force);
+            if (batch.isEmpty()) {
+                kafkaAvailable = true;
+                return total;
+            }
+            try {
+                List<CompletableFuture<?>> futures = new ArrayList<>(batch.size());
+                for (Entry entry : batch) {
+                    futures.add(kafkaTemplate.send(KafkaConfig.VIDEO_EVENTS_TOPIC, entry.key(), entry.event()));
+                }
+                CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                // Nothing is marked drained, the whole batch goes again; consumers skip the duplicates by event id
+                if (kafkaAvailable) {
+                    log.warn("[KAFKA-SPILL] Kafka unavailable, {} events stay journaled: {}", batch.size(), e.getMessage());
+                }
+                kafkaAvailable = false;
+                return total;
+            }
+            synchronized (this) {
+                for (Entry entry : batch) {
+                    entry.segment().markDrained(entry.position());
+                    depth.decrementAndGet();
+                    depthBytes -= entry.size();
+                }
+                releaseDrainedSegments();
+            }
+            drained.addAndGet(batch.size());
+            total += batch.size();
+        }
+        return total;
+    }
+
+    private List<Entry> readHead(int max) {
+        List<Entry> batch = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.hasUnread()) {
+                segment.readLive(batch, max);
+                break;
+            }
+        }
+        return batch;
+    }
+
+    // A segment that is fully drained and no longer written to is deleted
+    private void releaseDrainedSegments() {
+        while (segments.size() > 1 && segments.peekFirst().isFullyDrained()) {
+            segments.pollFirst().delete();
+        }
+    }
+
+    private record Entry(Segment segment, int position, int size, String key, VideoEventDTO event) {
+    }
+
+    private static final class Segment {
+        private final long id;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        private int readPosition; // first record that is not drained yet
+        private long liveBytes;
+
+        private Segment(long id, Path path, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path dir, long id, int size) throws IOException {
+            return open(dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX)), size);
+        }
+
+        static Segment open(Path path, int size) throws IOException {
+            String name = path.getFileName().toString();
+            long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                // The mapping stays valid after the channel is closed
+                return new Segment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size())));
+            }
+        }
+
+        // Finds the read and write positions after a restart; a torn record ends the segment
+        long recover() {
+            long live = 0;
+            int position = 0;
+            readPosition = -1;
+            while (position + HEADER_BYTES <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                if (length == 0 || Math.abs(length) > buffer.capacity() - position - HEADER_BYTES) {
+                    break;
+                }
+                if (length > 0) {
+                    byte[] payload = new byte[length];
+                    buffer.get(position + HEADER_BYTES, payload);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                        buffer.putInt(position, 0);
+                        break;
+                    }
+                    if (readPosition < 0) {
+                        readPosition = position;
+                    }
+                    live++;
+                    liveBytes += HEADER_BYTES + length;
+                }
+                position += HEADER_BYTES + Math.abs(length);
+            }
+            writePosition = position;
+            if (readPosition < 0) {
+                readPosition = position;
+            }
+            return live;
+        }
+
+        boolean fits(int length) {
+            return writePosition + HEADER_BYTES + length + 4 <= buffer.capacity();
+        }
+
+        void append(byte[] payload, int crc) {
+            buffer.put(writePosition + HEADER_BYTES, payload);
+            buffer.putInt(writePosition + 4, crc);
+            // Length goes last, a record is only visible once it is complete
+            buffer.putInt(writePosition, payload.length);
+            writePosition += HEADER_BYTES + payload.length;
+        }
+
+        void readLive(List<Entry> batch, int max) {
+            int position = readPosition;
+            while (batch.size() < max && position < writePosition) {
+                int length = buffer.getInt(position);
+                if (length > 0) {
+                    byte[] payload = new byte[length];
+                    buffer.get(position + HEADER_BYTES, payload);
+                    int keyLength = ((payload[0] & 0xFF) << 24) | ((payload[1] & 0xFF) << 16) | ((payload[2] & 0xFF) << 8) | (payload[3] & 0xFF);
+                    String key = new String(payload, 4, keyLength, StandardCharsets.UTF_8);
+                    byte[] event = new byte[length - 4 - keyLength];
+                    System.arraycopy(payload, 4 + keyLength, event, 0, event.length);
+                    batch.add(new Entry(this, position, HEADER_BYTES + length, key, VideoEventBinaryCodec.decode(event)));
+                }
+                position += HEADER_BYTES + Math.abs(length);
+            }
+        }
+
+        void markDrained(int position) {
+            buffer.putInt(position, -buffer.getInt(position));
+            while (readPosition < writePosition && buffer.getInt(readPosition) < 0) {
+                readPosition += HEADER_BYTES - buffer.getInt(readPosition);
+            }
+        }
+
+        boolean hasUnread() {
+            return readPosition < writePosition;
+        }
+
+        boolean isFullyDrained() {
+            return readPosition >= writePosition;
+        }
+
+        void force() {
+            buffer.force();
+        }
+
+        void delete() {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("[KAFKA-SPILL] Could not delete drained segment {}: {}", path, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.harsh.metricsPlay.service.kafka.serde;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.UUID;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+import com.harsh.metricsPlay.model.events.VideoEventDTO;
+
+/**
+ * Compact wire format for {@link VideoEventDTO}:
+ * <pre>
+ * magic(1) version(1) fields(varint bitmask) then, for each field present and in bit order:
+ *   eventId      16 raw bytes when it is a canonical UUID, otherwise a string
+ *   sessionId    string
+ *   userId       string
+ *   filmId       zigzag varint
+ *   eventType    one byte: a code from EVENT_TYPES (+0x80 when upper case), or 0 and a string
+ *   timestamp    zigzag varint, epoch millis of the LocalDateTime read as UTC
+ *   currentTime  8-byte double
+ *   duration     8-byte double
+ * strings are a varint byte length followed by UTF-8.
+ * </pre>
+ * The magic byte can never start a JSON document, so readers tell the two formats apart by the
+ * first byte. New fields take new bits; a version bump is only needed when existing ones change.
+ * Timestamps keep millisecond precision.
+ */
+public final class VideoEventBinaryCodec {
+
+    public static final byte MAGIC = (byte) 0xE7;
+    public static final byte VERSION = 1;
+
+    // Index is the wire code, 0 means the type is spelled out
+    private static final String[] EVENT_TYPES = {null, "play", "pause", "seek", "progress", "ended", "loaded"};
+    private static final int UPPER_CASE = 0x80;
+
+    private static final int EVENT_ID = 1;
+    private static final int SESSION_ID = 1 << 1;
+    private static final int USER_ID = 1 << 2;
+    private static final int FILM_ID = 1 << 3;
+    private static final int EVENT_TYPE = 1 << 4;
+    private static final int TIMESTAMP = 1 << 5;
+    private static final int CURRENT_TIME = 1 << 6;
+    private static final int DURATION = 1 << 7;
+    private static final int EVENT_ID_UUID = 1 << 8;
+
+    private VideoEventBinaryCodec() {
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length >= 2 && data[0] == MAGIC;
+    }
+
+    public static byte[] encode(VideoEventDTO event) {
+        UUID eventUuid = asUuid(event.getEventId());
+        int fields = (event.getEventId() != null ? EVENT_ID : 0)
+                | (eventUuid != null ? EVENT_ID_UUID : 0)
+                | (event.getSessionId() != null ? SESSION_ID : 0)
+                | (event.getUserId() != null ? USER_ID : 0)
+                | (event.getFilmId() != null ? FILM_ID : 0)
+                | (event.getEventType() != null ? EVENT_TYPE : 0)
+                | (event.getTimestamp() != null ? TIMESTAMP : 0)
+                | (event.getCurrentTime() != null ? CURRENT_TIME : 0)
+                | (event.getDuration() != null ? DURATION : 0);
+
+        Writer out = new Writer(64);
+        out.put(MAGIC);
+        out.put(VERSION);
+        out.putVarLong(fields);
+        if (eventUuid != null) {
+            out.putLong(eventUuid.getMostSignificantBits());
+            out.putLong(eventUuid.getLeastSignificantBits());
+        } else if (event.getEventId() != null) {
+            out.putString(event.getEventId());
+        }
+        if (event.getSessionId() != null) {
+            out.putString(event.getSessionId());
+        }
+        if (event.getUserId() != null) {
+            out.putString(event.getUserId());
+        }
+        if (event.getFilmId() != null) {
+            out.putVarLong(zigzag(event.getFilmId()));
+        }
+        if (event.getEventType() != null) {
+            putEventType(out, event.getEventType());
+        }
+        if (event.getTimestamp() != null) {
+            LocalDateTime at = event.getTimestamp();
+            out.putVarLong(zigzag(at.toEpochSecond(ZoneOffset.UTC) * 1000 + at.getNano() / 1_000_000));
+        }
+        if (event.getCurrentTime() != null) {
+            out.putLong(Double.doubleToRawLongBits(event.getCurrentTime()));
+        }
+        if (event.getDuration() != null) {
+            out.putLong(Double.doubleToRawLongBits(event.getDuration()));
+        }
+        return out.toByteArray();
+    }
+
+    public static VideoEventDTO decode(byte[] data) {
+        if (!isBinary(data)) {
+            throw new SerializationException("Not a binary video event");
+        }
+        if (data[1] != VERSION) {
+            throw new SerializationException("Unsupported video event version " + data[1]);
+        }
+        try {
+            ByteBuffer in = ByteBuffer.wrap(data, 2, data.length - 2);
+            long fields = getVarLong(in);
+            VideoEventDTO event = new VideoEventDTO();
+            if ((fields & EVENT_ID_UUID) != 0) {
+                event.setEventId(new UUID(in.getLong(), in.getLong()).toString());
+            } else if ((fields & EVENT_ID) != 0) {
+                event.setEventId(getString(in));
+            }
+            if ((fields & SESSION_ID) != 0) {
+                event.setSessionId(getString(in));
+            }
+            if ((fields & USER_ID) != 0) {
+                event.setUserId(getString(in));
+            }
+            if ((fields & FILM_ID) != 0) {
+                event.setFilmId(unzigzag(getVarLong(in)));
+            }
+            if ((fields & EVENT_TYPE) != 0) {
+                event.setEventType(getEventType(in));
+            }
+            if ((fields & TIMESTAMP) != 0) {
+                long millis = unzigzag(getVarLong(in));
+                event.setTimestamp(LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000),
+                        (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC));
+            }
+            if ((fields & CURRENT_TIME) != 0) {
+                event.setCurrentTime(Double.longBitsToDouble(in.getLong()));
+            }
+            if ((fields & DURATION) != 0) {
+                event.setDuration(Double.longBitsToDouble(in.getLong()));
+            }
+            return event;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new SerializationException("Truncated or corrupt binary video event", e);
+        }
+    }
+
+    private static void putEventType(Writer out, String type) {
+        String lower = type.toLowerCase(Locale.ROOT);
+        for (int code = 1; code < EVENT_TYPES.length; code++) {
+            if (EVENT_TYPES[code].equals(lower)) {
+                if (type.equals(lower)) {
+                    out.put((byte) code);
+                    return;
+                }
+                if (type.equals(lower.toUpperCase(Locale.ROOT))) {
+                    out.put((byte) (code | UPPER_CASE));
+                    return;
+                }
+                break;
+            }
+        }
+        out.put((byte) 0);
+        out.putString(type);
+    }
+
+    private static String getEventType(ByteBuffer in) {
+        int code = in.get() & 0xFF;
+        if (code == 0) {
+            return getString(in);
+        }
+        int index = code & ~UPPER_CASE;
+        if (index >= EVENT_TYPES.length) {
+            throw new IllegalArgumentException("Unknown event type code " + code);
+        }
+        return (code & UPPER_CASE) != 0 ? EVENT_TYPES[index].toUpperCase(Locale.ROOT) : EVENT_TYPES[index];
+    }
+
+    // Only ids that print back identically are packed, anything else would not round-trip
+    private static UUID asUuid(String value) {
+        if (value == null || value.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(value);
+            return uuid.toString().equals(value) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = (int) getVarLong(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Bad string length " + length);
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint is too long");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Writer {
+        private byte[] buf;
+        private int pos;
+
+        private Writer(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+            }
+        }
+
+        private void put(byte b) {
+            ensure(1);
+            buf[pos++] = b;
+        }
+
+        private void putLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[pos++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void putVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        private void putString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.harsh.metricsPlay.service.kafka.serde;
+
+import java.util.Map;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+/**
+ * Value deserializer that reads both formats: records starting with the binary magic byte are
+ * decoded as video events, anything else (JSON written before binary was switched on, or other
+ * topics) goes to the JSON deserializer.
+ */
+public class VideoEventDeserializer implements Deserializer<Object> {
+
+    private final JsonDeserializer<Object> json = new JsonDeserializer<>();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        if (VideoEventBinaryCodec.isBinary(data)) {
+            return VideoEventBinaryCodec.decode(data);
+        }
+        return json.deserialize(topic, data);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        if (VideoEventBinaryCodec.isBinary(data)) {
+            return VideoEventBinaryCodec.decode(data);
+        }
+        return json.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
@@ -0,0 +1,55 @@
+package com.harsh.metricsPlay.service.kafka.serde;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import com.harsh.metricsPlay.model.events.VideoEventDTO;
+
+/**
+ * Value serializer that writes {@link VideoEventDTO} in {@link VideoEventBinaryCodec} format on
+ * the topics listed under {@link #BINARY_TOPICS_CONFIG}, and everything else as JSON.
+ */
+public class VideoEventSerializer implements Serializer<Object> {
+
+    // Comma-separated topic names, passed through the producer config
+    public static final String BINARY_TOPICS_CONFIG = "metricsplay.serde.binary-topics";
+
+    private final JsonSerializer<Object> json = new JsonSerializer<>();
+    private Set<String> binaryTopics = Set.of();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+        Object topics = configs.get(BINARY_TOPICS_CONFIG);
+        if (topics != null) {
+            binaryTopics = Arrays.stream(topics.toString().split(","))
+                    .map(String::trim)
+                    .filter(topic -> !topic.isEmpty())
+                    .collect(Collectors.toUnmodifiableSet());
+        }
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        return serialize(topic, null, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        if (data instanceof VideoEventDTO event && binaryTopics.contains(topic)) {
+            return VideoEventBinaryCodec.encode(event);
+        }
+        return headers != null ? json.serialize(topic, headers, data) : json.serialize(topic, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
@@ -0,0 +1,301 @@
+package com.harsh.metricsPlay.service.persistence;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Owns the video_events schema; Hibernate's schema update skips the table (see
+ * {@link VideoEventSchemaFilterProvider}). The table is kept range-partitioned by day on
+ * event_timestamp. A fresh database gets the partitioned table directly; a plain table left
+ * by an older version is converted once: it is renamed to video_events_legacy and attached as
+ * the partition for everything up to the first daily partition, so no rows are copied. After
+ * that, partitions are created premake-days ahead and a default partition catches anything
+ * outside them. Rows that land in the default partition move into their day's partition when
+ * it is created, and retention drops partitions that ended more than retention-days ago and
+ * deletes default rows older than that.
+ */
+@Component
+@Slf4j
+public class VideoEventPartitionManager {
+
+    private static final String TABLE = "video_events";
+    private static final String LEGACY = "video_events_legacy";
+    private static final String DEFAULT_PARTITION = "video_events_default";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+    // Serializes conversion and rollover between instances starting at the same time
+    private static final long LOCK_KEY = 0x7669646576L;
+    // Same columns the VideoEvent mapping would have Hibernate create
+    private static final String COLUMNS = "id BIGINT NOT NULL, event_id VARCHAR(64), event_type VARCHAR(255) NOT NULL, "
+            + "film_id BIGINT NOT NULL, username VARCHAR(255) NOT NULL, video_current_time FLOAT(53), video_duration FLOAT(53), "
+            + "session_id VARCHAR(255) NOT NULL, event_timestamp TIMESTAMP(6) NOT NULL, user_agent VARCHAR(255), ip_address VARCHAR(255)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${events.partitions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${events.partitions.premake-days:7}")
+    private int premakeDays;
+
+    @Value("${events.partitions.retention-days:90}")
+    private int retentionDays;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong movedFromDefault = new AtomicLong();
+    private final AtomicLong purgedFromDefault = new AtomicLong();
+
+    public VideoEventPartitionManager(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void init() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                lock();
+                if (!tableExists(TABLE)) {
+                    create(enabled);
+                } else if (enabled && !isPartitioned()) {
+                    convert();
+                }
+                ensureIndexes();
+            });
+        } catch (Exception e) {
+            log.error("[EVENT-PARTITIONS] Could not partition video_events, continuing unpartitioned: {}", e.getMessage(), e);
+            // Everything rolled back; the plain table still needs the key the writer conflicts on
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!tableExists(TABLE)) {
+                    create(false);
+                }
+                ensureIndexes();
+            });
+            return;
+        }
+        maintain();
+    }
+
+    @Scheduled(fixedDelayString = "${events.partitions.maintenance-interval-ms:3600000}",
+            initialDelayString = "${events.partitions.maintenance-interval-ms:3600000}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                lock();
+                if (!isPartitioned()) {
+                    return;
+                }
+                LocalDate today = LocalDate.now();
+                LocalDateTime cutoff = retentionDays > 0 ? today.minusDays(retentionDays).atStartOfDay() : null;
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + DEFAULT_PARTITION + " PARTITION OF " + TABLE + " DEFAULT");
+                Map<String, LocalDateTime> bounds = partitionBounds();
+                LocalDateTime legacyEnd = bounds.get(LEGACY);
+                Set<LocalDate> days = new TreeSet<>(defaultPartitionDays(today.plusDays(premakeDays + 1)));
+                for (int day = 0; day <= premakeDays; day++) {
+                    days.add(today.plusDays(day));
+                }
+                for (LocalDate date : days) {
+                    // Days still inside the legacy partition's range cannot get their own partition,
+                    // expired ones are left to the purge below
+                    if ((legacyEnd == null || !date.atStartOfDay().isBefore(legacyEnd))
+                            && (cutoff == null || date.plusDays(1).atStartOfDay().isAfter(cutoff))) {
+                        createDailyPartition(date);
+                    }
+                }
+                if (cutoff != null) {
+                    dropExpired(bounds, cutoff);
+                    purgeDefaultPartition(cutoff);
+                }
+            });
+        } catch (Exception e) {
+            log.error("[EVENT-PARTITIONS] Partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("retentionDays", retentionDays);
+        stats.put("premakeDays", premakeDays);
+        stats.put("created", created.get());
+        stats.put("dropped", dropped.get());
+        stats.put("movedFromDefault", movedFromDefault.get());
+        stats.put("purgedFromDefault", purgedFromDefault.get());
+        try {
+            stats.put("partitions", partitionNames());
+        } catch (Exception e) {
+            stats.put("partitions", List.of());
+        }
+        return stats;
+    }
+
+    private void create(boolean partitioned) {
+        if (partitioned) {
+            jdbcTemplate.execute("CREATE TABLE " + TABLE + " (" + COLUMNS + ", PRIMARY KEY (id, event_timestamp)) "
+                    + "PARTITION BY RANGE (event_timestamp)");
+            createDailyPartition(LocalDate.now());
+        } else {
+            jdbcTemplate.execute("CREATE TABLE " + TABLE + " (" + COLUMNS + ", PRIMARY KEY (id))");
+        }
+        log.info("[EVENT-PARTITIONS] Created {} video_events table", partitioned ? "partitioned" : "plain");
+    }
+
+    private void convert() {
+        LocalDate firstDay = jdbcTemplate.queryForObject(
+                "SELECT GREATEST(CURRENT_DATE + 1, COALESCE(MAX(event_timestamp)::date + 1, CURRENT_DATE))::date FROM " + TABLE,
+                LocalDate.class);
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + LEGACY);
+        // Index and constraint names are schema-wide, the partitioned parent needs the originals
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE schemaname = current_schema() AND tablename = ?", String.class, LEGACY);
+        for (String index : indexes) {
+            String renamed = index.startsWith(TABLE + "_") ? LEGACY + index.substring(TABLE.length()) : "legacy_" + index;
+            jdbcTemplate.execute("ALTER INDEX " + index + " RENAME TO " + renamed);
+        }
+        // Ids come from video_events_seq now, an identity column would get in the way of attaching
+        jdbcTemplate.execute("ALTER TABLE " + LEGACY + " ALTER COLUMN id DROP IDENTITY IF EXISTS");
+
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + " (LIKE " + LEGACY + " INCLUDING DEFAULTS, "
+                + "PRIMARY KEY (id, event_timestamp)) PARTITION BY RANGE (event_timestamp)");
+        ensureIndexes();
+
+        boolean legacyEmpty = Boolean.FALSE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + LEGACY + ")", Boolean.class));
+        if (legacyEmpty) {
+            jdbcTemplate.execute("DROP TABLE " + LEGACY);
+            firstDay = LocalDate.now();
+        } else {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + LEGACY
+                    + " FOR VALUES FROM (MINVALUE) TO ('" + firstDay.atStartOfDay() + "')");
+        }
+        createDailyPartition(firstDay);
+        log.info("[EVENT-PARTITIONS] Converted video_events to daily partitions starting {}{}",
+                firstDay, legacyEmpty ? "" : ", existing rows kept in " + LEGACY);
+    }
+
+    // Created on the parent so every partition, present or future, gets them too
+    private void ensureIndexes() {
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS video_events_event_key ON " + TABLE + " (event_id, event_timestamp)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS video_events_film_time_idx ON " + TABLE + " (film_id, event_timestamp)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS video_events_type_time_idx ON " + TABLE + " (event_type, event_timestamp)");
+        // Superseded by video_events_event_key, which includes the partition column
+        jdbcTemplate.execute("DROP INDEX IF EXISTS video_events_event_id_key");
+    }
+
+    private void createDailyPartition(LocalDate day) {
+        String name = TABLE + "_p" + day.format(SUFFIX);
+        if (tableExists(name)) {
+            return;
+        }
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end = day.plusDays(1).atStartOfDay();
+        String range = " FOR VALUES FROM ('" + start + "') TO ('" + end + "')";
+        try {
+            jdbcTemplate.execute("SAVEPOINT create_partition");
+            if (defaultPartitionHolds(start, end)) {
+                // CREATE ... PARTITION OF fails while the default partition holds rows of the day,
+                // so they move into a standalone table that is then attached in its place
+                jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + TABLE + " INCLUDING DEFAULTS)");
+                int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                        + " WHERE event_timestamp >= ? AND event_timestamp < ? RETURNING *) INSERT INTO " + name
+                        + " SELECT * FROM moved", start, end);
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + name + range);
+                movedFromDefault.addAndGet(moved);
+                log.info("[EVENT-PARTITIONS] Created partition {} with {} rows moved out of {}", name, moved, DEFAULT_PARTITION);
+            } else {
+                jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF " + TABLE + range);
+                log.info("[EVENT-PARTITIONS] Created partition {}", name);
+            }
+            jdbcTemplate.execute("RELEASE SAVEPOINT create_partition");
+            created.incrementAndGet();
+        } catch (Exception e) {
+            // Overlaps an existing partition, e.g. the legacy one
+            jdbcTemplate.execute("ROLLBACK TO SAVEPOINT create_partition");
+            log.warn("[EVENT-PARTITIONS] Could not create partition {}: {}", name, e.getMessage());
+        }
+    }
+
+    private void dropExpired(Map<String, LocalDateTime> bounds, LocalDateTime cutoff) {
+        bounds.forEach((name, end) -> {
+            if (!end.isAfter(cutoff)) {
+                jdbcTemplate.execute("DROP TABLE " + name);
+                dropped.incrementAndGet();
+                log.info("[EVENT-PARTITIONS] Dropped partition {} (ended {}, retention {} days)", name, end, retentionDays);
+            }
+        });
+    }
+
+    // Retention for rows no daily partition took: they are older than any partition still kept
+    private void purgeDefaultPartition(LocalDateTime cutoff) {
+        int purged = jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE event_timestamp < ?", cutoff);
+        if (purged > 0) {
+            purgedFromDefault.addAndGet(purged);
+            log.info("[EVENT-PARTITIONS] Deleted {} rows older than {} from {}", purged, cutoff, DEFAULT_PARTITION);
+        }
+    }
+
+    // Days before the given one that have rows in the default partition, late events for a day without a partition
+    private List<LocalDate> defaultPartitionDays(LocalDate before) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT event_timestamp::date FROM " + DEFAULT_PARTITION
+                + " WHERE event_timestamp < ?", LocalDate.class, before.atStartOfDay());
+    }
+
+    private boolean defaultPartitionHolds(LocalDateTime start, LocalDateTime end) {
+        return tableExists(DEFAULT_PARTITION) && Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM "
+                + DEFAULT_PARTITION + " WHERE event_timestamp >= ? AND event_timestamp < ?)", Boolean.class, start, end));
+    }
+
+    // Upper bound of every range partition; the default partition has none and is left out
+    private Map<String, LocalDateTime> partitionBounds() {
+        Map<String, LocalDateTime> bounds = new HashMap<>();
+        jdbcTemplate.query("SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i "
+                + "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass(?)", rs -> {
+            Matcher upper = UPPER_BOUND.matcher(rs.getString(2));
+            if (upper.find()) {
+                bounds.put(rs.getString(1), LocalDateTime.parse(upper.group(1).replace(' ', 'T')));
+            }
+        }, TABLE);
+        return bounds;
+    }
+
+    private List<String> partitionNames() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                + "WHERE i.inhparent = to_regclass(?) ORDER BY c.relname", String.class, TABLE);
+    }
+
+    private boolean tableExists(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name));
+    }
+
+    private boolean isPartitioned() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))", Boolean.class, TABLE));
+    }
+
+    private void lock() {
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + LOCK_KEY + ")");
+    }
+}
@@ -0,0 +1,279 @@
+package com.harsh.metricsPlay.service.persistence;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.harsh.metricsPlay.model.entity.VideoEvent;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Batched writer for video_events. Callers submit into a bounded queue (blocking for up to
+ * offer-timeout-ms when it is full) and get a future that completes once their rows are
+ * written; a single flusher drains the queue and writes JDBC batches once batch-size rows are
+ * waiting or flush-interval-ms has passed. Ids come from video_events_seq in blocks of
+ * {@link VideoEvent#ID_ALLOCATION_SIZE}, the same pooled scheme Hibernate uses for the entity,
+ * so no generated keys are read back per row. Rows are keyed by (event_id, event_timestamp), so
+ * writing the same event twice (a Kafka redelivery) is a no-op.
+ */
+@Component
+// Schema update creates the table and sequence, the partition manager its final shape and keys
+@DependsOn({"entityManagerFactory", "videoEventPartitionManager"})
+@Slf4j
+public class VideoEventPersistencePipeline {
+
+    private static final String INSERT_SQL = "INSERT INTO video_events (id, event_id, event_type, film_id, username, video_current_time, "
+            + "video_duration, session_id, event_timestamp, user_agent, ip_address) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (event_id, event_timestamp) DO NOTHING";
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${events.persistence.queue-capacity:50000}")
+    private int queueCapacity;
+
+    @Value("${events.persistence.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${events.persistence.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${events.persistence.offer-timeout-ms:1000}")
+    private long offerTimeoutMs;
+
+    private BlockingQueue<Pending> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    // Only touched by the flusher thread
+    private long nextId;
+    private long idsLeft;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushNanos = new AtomicLong();
+
+    public VideoEventPersistencePipeline(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void start() {
+        alignSequence();
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        flusher = new Thread(this::run, "video-event-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Queues the events for the next batches. The future completes once all of them are in the
+     * table (or already were), and fails when the queue stayed full for the whole offer timeout
+     * or a batch could not be written, in which case the caller should retry later.
+     */
+    public CompletableFuture<Void> submit(List<VideoEvent> events) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(events.size());
+        for (VideoEvent event : events) {
+            Pending pending = new Pending(event, new CompletableFuture<>());
+            if (!offer(pending)) {
+                rejected.addAndGet(events.size() - futures.size());
+                futures.add(CompletableFuture.failedFuture(new IllegalStateException("video event queue is full")));
+                break;
+            }
+            enqueued.incrementAndGet();
+            futures.add(pending.written());
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long flushCount = flushes.get();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("batchSize", batchSize);
+        stats.put("enqueued", enqueued.get());
+        stats.put("rejected", rejected.get());
+        stats.put("written", written.get());
+        stats.put("duplicates", duplicates.get());
+        stats.put("failed", failed.get());
+        stats.put("flushes", flushCount);
+        stats.put("avgRowsPerFlush", flushCount == 0 ? 0.0 : (double) written.get() / flushCount);
+        stats.put("avgFlushMs", flushCount == 0 ? 0.0 : flushNanos.get() / 1_000_000.0 / flushCount);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        if (!queue.isEmpty()) {
+            log.warn("[EVENT-PERSISTENCE] {} events still queued at shutdown were not written", queue.size());
+        }
+    }
+
+    private boolean offer(Pending pending) {
+        try {
+            return queue.offer(pending, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                fill(batch);
+            } catch (InterruptedException e) {
+                // Shutdown: stop waiting and write out whatever is left
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+        log.info("[EVENT-PERSISTENCE] Flusher stopped, {} events written", written.get());
+    }
+
+    // Blocks for the first event, then collects until the batch is full or the interval ends
+    private void fill(List<Pending> batch) throws InterruptedException {
+        Pending first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        List<VideoEvent> rows = new ArrayList<>(batch.size());
+        batch.forEach(pending -> rows.add(pending.event()));
+        Exception lastError = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            long started = System.nanoTime();
+            try {
+                for (VideoEvent event : rows) {
+                    if (event.getId() == null) {
+                        event.setId(allocateId());
+                    }
+                }
+                int[][] counts = jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), this::bind);
+                long skipped = Arrays.stream(counts).flatMapToInt(Arrays::stream).filter(count -> count == 0).count();
+                written.addAndGet(rows.size() - skipped);
+                duplicates.addAndGet(skipped);
+                flushes.incrementAndGet();
+                flushNanos.addAndGet(System.nanoTime() - started);
+                log.debug("[EVENT-PERSISTENCE] Wrote {} events ({} already present) in {} ms",
+                        rows.size() - skipped, skipped, (System.nanoTime() - started) / 1_000_000);
+                batch.forEach(pending -> pending.written().complete(null));
+                return;
+            } catch (Exception e) {
+                lastError = e;
+                log.warn("[EVENT-PERSISTENCE] Batch of {} failed (attempt {}/{}): {}", rows.size(), attempt, MAX_ATTEMPTS, e.getMessage());
+                try {
+                    Thread.sleep(100L * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        failed.addAndGet(rows.size());
+        log.error("[EVENT-PERSISTENCE] Gave up on batch of {} events after {} attempts", rows.size(), MAX_ATTEMPTS);
+        for (Pending pending : batch) {
+            pending.written().completeExceptionally(lastError);
+        }
+    }
+
+    private void bind(PreparedStatement ps, VideoEvent event) throws SQLException {
+        ps.setLong(1, event.getId());
+        ps.setString(2, event.getEventId());
+        ps.setString(3, event.getEventType());
+        ps.setLong(4, event.getFilmId());
+        ps.setString(5, event.getUsername());
+        setDouble(ps, 6, event.getCurrentTime());
+        setDouble(ps, 7, event.getDuration());
+        ps.setString(8, event.getSessionId());
+        ps.setTimestamp(9, Timestamp.valueOf(event.getTimestamp()));
+        ps.setString(10, event.getUserAgent());
+        ps.setString(11, event.getIpAddress());
+    }
+
+    private static void setDouble(PreparedStatement ps, int index, Double value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.DOUBLE);
+        } else {
+            ps.setDouble(index, value);
+        }
+    }
+
+    // Pooled allocation: a sequence value v owns the ids (v - size, v]
+    private long allocateId() {
+        if (idsLeft == 0) {
+            Long hi = jdbcTemplate.queryForObject("SELECT nextval('video_events_seq')", Long.class);
+            nextId = hi - VideoEvent.ID_ALLOCATION_SIZE + 1;
+            idsLeft = VideoEvent.ID_ALLOCATION_SIZE;
+        }
+        idsLeft--;
+        return nextId++;
+    }
+
+    /**
+     * Rows written while the table still used an identity column have ids the new sequence
+     * knows nothing about; moves the sequence past them once at startup.
+     */
+    private void alignSequence() {
+        try {
+            jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS video_events_seq START WITH 1 INCREMENT BY " + VideoEvent.ID_ALLOCATION_SIZE);
+            jdbcTemplate.queryForObject("SELECT setval('video_events_seq', GREATEST("
+                    + "(SELECT COALESCE(MAX(id), 1) FROM video_events), "
+                    + "(SELECT last_value FROM video_events_seq)))", Long.class);
+        } catch (Exception e) {
+            log.warn("[EVENT-PERSISTENCE] Could not align video_events_seq: {}", e.getMessage());
+        }
+    }
+
+    private record Pending(VideoEvent event, CompletableFuture<Void> written) {
+    }
+}
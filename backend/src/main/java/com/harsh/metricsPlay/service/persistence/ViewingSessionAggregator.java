@@ -0,0 +1,306 @@
+package com.harsh.metricsPlay.service.persistence;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.harsh.metricsPlay.model.entity.ViewingSession;
+import com.harsh.metricsPlay.model.events.VideoEventDTO;
+import com.harsh.metricsPlay.repository.ViewingSessionRepository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps active viewing sessions in memory and applies events to them as they arrive, so a
+ * progress tick costs no database round trip. A session is read from the database once, when
+ * it is first seen; dirty sessions are written back on an interval as one batched upsert, and
+ * sessions idle past idle-timeout-ms are dropped after their last state has been written.
+ */
+@Component
+@Slf4j
+public class ViewingSessionAggregator {
+
+    private static final String UPSERT_SQL = "INSERT INTO viewing_sessions (session_id, film_id, username, start_time, end_time, "
+            + "total_watch_time, retention_rate, is_completed, last_position, last_event_time, is_playing, last_event_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (session_id) DO UPDATE SET end_time = EXCLUDED.end_time, total_watch_time = EXCLUDED.total_watch_time, "
+            + "retention_rate = EXCLUDED.retention_rate, is_completed = EXCLUDED.is_completed, last_position = EXCLUDED.last_position, "
+            + "last_event_time = EXCLUDED.last_event_time, is_playing = EXCLUDED.is_playing, last_event_id = EXCLUDED.last_event_id";
+
+    // A position delta counts as watched only if it fits in the wall time between the two events (plus this slack)
+    private static final double WATCH_SLACK_SECONDS = 2.0;
+
+    // Ids of the latest events applied per session; a redelivered poll replays at most the tail of a session
+    private static final int RECENT_EVENT_IDS = 32;
+
+    private final ViewingSessionRepository sessionRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${events.sessions.idle-timeout-ms:600000}")
+    private long idleTimeoutMs;
+
+    private final ConcurrentHashMap<String, SessionState> sessions = new ConcurrentHashMap<>();
+
+    private final AtomicLong loaded = new AtomicLong();
+    private final AtomicLong upserted = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+
+    public ViewingSessionAggregator(ViewingSessionRepository sessionRepository, JdbcTemplate jdbcTemplate) {
+        this.sessionRepository = sessionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Returns the seconds of playback this event credited to its session, or empty when the
+     * event was not applied: no session id, an event id the session has already applied
+     * (a Kafka redelivery), or older than what the session has already seen.
+     */
+    public OptionalDouble apply(VideoEventDTO event) {
+        if (event.getSessionId() == null) {
+            return OptionalDouble.empty();
+        }
+        while (true) {
+            SessionState state = sessions.get(event.getSessionId());
+            if (state == null) {
+                // Loaded outside the map so a slow read never blocks other sessions
+                SessionState fresh = load(event);
+                state = sessions.putIfAbsent(event.getSessionId(), fresh);
+                if (state == null) {
+                    state = fresh;
+                }
+            }
+            synchronized (state) {
+                if (state.evicted) {
+                    continue; // lost a race with eviction, start again from the database row
+                }
+                return state.apply(event);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${events.sessions.flush-interval-ms:5000}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        List<Object[]> rows = new ArrayList<>();
+        List<SessionState> flushed = new ArrayList<>();
+        for (SessionState state : sessions.values()) {
+            synchronized (state) {
+                if (state.dirty && state.isPersistable()) {
+                    rows.add(state.toRow());
+                    flushed.add(state);
+                }
+                // Sessions without a film or user can never be written, they only age out
+                state.dirty = false;
+            }
+        }
+        if (!rows.isEmpty()) {
+            try {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), ViewingSessionAggregator::bind);
+                upserted.addAndGet(rows.size());
+                log.debug("[SESSION-AGGREGATOR] Upserted {} viewing sessions", rows.size());
+            } catch (Exception e) {
+                flushFailures.incrementAndGet();
+                log.error("[SESSION-AGGREGATOR] Failed to upsert {} viewing sessions: {}", rows.size(), e.getMessage());
+                flushed.forEach(state -> {
+                    synchronized (state) {
+                        state.dirty = true;
+                    }
+                });
+                return;
+            }
+        }
+        evictIdle(now);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("activeSessions", sessions.size());
+        stats.put("loaded", loaded.get());
+        stats.put("upserted", upserted.get());
+        stats.put("evicted", evicted.get());
+        stats.put("flushFailures", flushFailures.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private SessionState load(VideoEventDTO event) {
+        loaded.incrementAndGet();
+        ViewingSession session = sessionRepository.findById(event.getSessionId()).orElseGet(() -> ViewingSession.builder()
+                .sessionId(event.getSessionId())
+                .filmId(event.getFilmId())
+                .username(event.getUserId())
+                .startTime(event.getTimestamp() != null ? event.getTimestamp() : LocalDateTime.now())
+                .totalWatchTime(0.0)
+                .completed(false)
+                .playing(false)
+                .lastPosition(0.0)
+                .build());
+        return new SessionState(session);
+    }
+
+    // Idle sessions are clean at this point unless an event raced the flush; those wait for the next round
+    private void evictIdle(long now) {
+        sessions.forEach((sessionId, state) -> {
+            synchronized (state) {
+                if (!state.dirty && now - state.lastTouched > idleTimeoutMs) {
+                    state.evicted = true;
+                    sessions.remove(sessionId, state);
+                    evicted.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    private static void bind(PreparedStatement ps, Object[] row) throws SQLException {
+        for (int i = 0; i < row.length; i++) {
+            ps.setObject(i + 1, row[i]);
+        }
+    }
+
+    private static final class SessionState {
+        private final ViewingSession session;
+        private boolean playing;
+        private LocalDateTime lastEventAt;
+        private final LinkedHashSet<String> recentEventIds = new LinkedHashSet<>();
+        private Double duration;
+        private boolean dirty;
+        private boolean evicted;
+        private long lastTouched = System.currentTimeMillis();
+
+        private SessionState(ViewingSession session) {
+            this.session = session;
+            this.lastEventAt = session.getLastEventTime();
+            if (session.getLastEventId() != null) {
+                recentEventIds.add(session.getLastEventId());
+            }
+            // Rows written before is_playing existed: an unfinished session is taken as running, the
+            // wall-clock check in accumulate still refuses credit the elapsed time cannot explain
+            this.playing = session.getPlaying() != null ? session.getPlaying() : !Boolean.TRUE.equals(session.getCompleted());
+            if (session.getTotalWatchTime() == null) {
+                session.setTotalWatchTime(0.0);
+            }
+        }
+
+        private OptionalDouble apply(VideoEventDTO event) {
+            String type = event.getEventType() != null ? event.getEventType().toLowerCase(Locale.ROOT) : "";
+            Double position = event.getCurrentTime();
+            LocalDateTime at = event.getTimestamp() != null ? event.getTimestamp() : LocalDateTime.now();
+            // Timestamps cannot tell a replay apart, a pause and a play may share one
+            if (event.getEventId() != null && recentEventIds.contains(event.getEventId())) {
+                return OptionalDouble.empty();
+            }
+            if (lastEventAt != null && at.isBefore(lastEventAt)) {
+                // Arrived out of order (or a replay older than the ids kept), it would skew the totals
+                return OptionalDouble.empty();
+            }
+            if (event.getDuration() != null && event.getDuration() > 0) {
+                duration = event.getDuration();
+            }
+            if (session.getUsername() == null) {
+                session.setUsername(event.getUserId());
+            }
+
+            // Time between the previous event and this one counts if the player was running through it
+            double watched = 0.0;
+            if (playing && position != null && !type.equals("seek") && !type.equals("play")) {
+                watched = accumulate(position, at);
+            }
+            switch (type) {
+                case "play":
+                    playing = true;
+                    break;
+                case "pause":
+                    playing = false;
+                    break;
+                case "ended":
+                    playing = false;
+                    session.setCompleted(true);
+                    session.setEndTime(at);
+                    break;
+                default:
+                    break;
+            }
+            if (position != null) {
+                session.setLastPosition(position);
+            }
+            if (duration != null) {
+                session.setRetentionRate(Math.min(100.0, session.getTotalWatchTime() / duration * 100.0));
+            }
+            lastEventAt = at;
+            session.setLastEventTime(at);
+            session.setPlaying(playing);
+            remember(event.getEventId());
+            lastTouched = System.currentTimeMillis();
+            dirty = true;
+            return OptionalDouble.of(watched);
+        }
+
+        private void remember(String eventId) {
+            if (eventId == null) {
+                return;
+            }
+            recentEventIds.add(eventId);
+            session.setLastEventId(eventId);
+            if (recentEventIds.size() > RECENT_EVENT_IDS) {
+                Iterator<String> oldest = recentEventIds.iterator();
+                oldest.next();
+                oldest.remove();
+            }
+        }
+
+        private double accumulate(double position, LocalDateTime at) {
+            double delta = position - (session.getLastPosition() != null ? session.getLastPosition() : 0.0);
+            double elapsed = lastEventAt != null ? Duration.between(lastEventAt, at).toMillis() / 1000.0 : 0.0;
+            // Skips backwards jumps and forward jumps the wall clock cannot explain (unreported seeks)
+            if (delta > 0 && delta <= elapsed + WATCH_SLACK_SECONDS) {
+                session.setTotalWatchTime(session.getTotalWatchTime() + delta);
+                return delta;
+            }
+            return 0.0;
+        }
+
+        private boolean isPersistable() {
+            return session.getFilmId() != null && session.getUsername() != null;
+        }
+
+        private Object[] toRow() {
+            return new Object[] {
+                    session.getSessionId(),
+                    session.getFilmId(),
+                    session.getUsername(),
+                    Timestamp.valueOf(session.getStartTime()),
+                    session.getEndTime() != null ? Timestamp.valueOf(session.getEndTime()) : null,
+                    session.getTotalWatchTime(),
+                    session.getRetentionRate(),
+                    Boolean.TRUE.equals(session.getCompleted()),
+                    session.getLastPosition(),
+                    Timestamp.valueOf(session.getLastEventTime()),
+                    playing,
+                    session.getLastEventId()
+            };
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.harsh.metricsPlay.service.streaming;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.harsh.metricsPlay.model.dto.FaststartReportDTO;
+import com.harsh.metricsPlay.service.streaming.Mp4Boxes.Box;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Detects MP4s whose moov atom sits after the media data and writes a faststart copy
+ * (ftyp, moov, then everything else) into a local cache directory, in the background.
+ * New playbacks are served from the copy once it exists; playbacks that started on the
+ * original stay on it, since moov and every chunk offset differ between the two files.
+ */
+@Component
+@Slf4j
+public class FaststartService {
+
+    public enum Status { PENDING, FASTSTART, REWRITTEN, SKIPPED, FAILED }
+
+    @Value("${streaming.faststart.enabled:true}")
+    private boolean enabled;
+
+    @Value("${streaming.faststart.cache-dir:/tmp/metricsplay-faststart}")
+    private String cacheDir;
+
+    @Value("${streaming.faststart.recheck-ms:30000}")
+    private long recheckMs;
+
+    @Value("${streaming.faststart.pin-idle-ms:600000}")
+    private long pinIdleMs;
+
+    private final ConcurrentHashMap<Path, Entry> entries = new ConcurrentHashMap<>();
+    // playback key + original -> last time that playback was served the original while its copy was pending
+    private final ConcurrentHashMap<String, Long> originalPins = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "mp4-faststart");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * Returns the path to serve for {@code original}: its faststart copy when one is ready,
+     * otherwise the original (scheduling an analysis for files not seen yet).
+     */
+    public Path resolve(Path original) {
+        if (!enabled) {
+            return original;
+        }
+        Entry entry = entries.get(original);
+        if (entry == null) {
+            submit(original);
+            return original;
+        }
+        long now = System.currentTimeMillis();
+        if (entry.status == Status.REWRITTEN && now - entry.checkedAt > recheckMs) {
+            // Cheap periodic stat so a replaced source file is never shadowed by an old copy
+            entry.checkedAt = now;
+            if (!matchesSource(entry, original)) {
+                log.info("[FASTSTART] {} changed, re-analysing", original);
+                entries.remove(original, entry);
+                submit(original);
+                return original;
+            }
+        }
+        return entry.status == Status.REWRITTEN ? entry.copy : original;
+    }
+
+    /**
+     * Like {@link #resolve(Path)}, for one request of a playback. A playback served the original
+     * while its copy was still pending keeps getting the original for its Range requests until
+     * it has been idle for pin-idle-ms; a request without Range starts a new playback on the
+     * current path.
+     */
+    public Path resolve(Path original, String playbackKey, boolean rangeRequest) {
+        Path served = resolve(original);
+        if (playbackKey == null) {
+            return served;
+        }
+        String pinKey = playbackKey + "|" + original;
+        long now = System.currentTimeMillis();
+        if (served.equals(original)) {
+            Entry entry = entries.get(original);
+            if (entry != null && entry.status == Status.PENDING) {
+                originalPins.put(pinKey, now);
+            }
+            return original;
+        }
+        Long pinnedAt = originalPins.get(pinKey);
+        if (rangeRequest && pinnedAt != null && now - pinnedAt <= pinIdleMs) {
+            originalPins.put(pinKey, now);
+            return original;
+        }
+        if (pinnedAt != null) {
+            originalPins.remove(pinKey);
+        }
+        return served;
+    }
+
+    @Scheduled(fixedDelayString = "${streaming.faststart.pin-idle-ms:600000}")
+    public void expirePins() {
+        long cutoff = System.currentTimeMillis() - pinIdleMs;
+        originalPins.values().removeIf(pinnedAt -> pinnedAt < cutoff);
+    }
+
+    public void scan(Path videoDir) {
+        if (!enabled || !Files.isDirectory(videoDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(videoDir, "*.{mp4,m4v,mov}")) {
+            for (Path file : files) {
+                submit(file);
+            }
+        } catch (IOException e) {
+            log.warn("[FASTSTART] Could not scan {}: {}", videoDir, e.getMessage());
+        }
+    }
+
+    public List<FaststartReportDTO> getReport() {
+        List<FaststartReportDTO> report = new ArrayList<>();
+        entries.forEach((original, entry) -> report.add(FaststartReportDTO.builder()
+                .file(original.getFileName().toString())
+                .status(entry.status.name())
+                .detail(entry.detail)
+                .servedFrom(entry.status == Status.REWRITTEN ? entry.copy.toString() : original.toString())
+                .checkedAt(entry.analysedAt)
+                .build()));
+        report.sort(Comparator.comparing(FaststartReportDTO::getFile));
+        return report;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void submit(Path original) {
+        Entry pending = new Entry(Status.PENDING, "queued");
+        if (entries.putIfAbsent(original, pending) == null) {
+            executor.submit(() -> analyse(original, pending));
+        }
+    }
+
+    private void analyse(Path original, Entry pending) {
+        Entry result;
+        try {
+            result = relocate(original);
+        } catch (Exception e) {
+            log.warn("[FASTSTART] Failed to process {}: {}", original, e.getMessage());
+            result = new Entry(Status.FAILED, e.getMessage());
+        }
+        entries.replace(original, pending, result);
+    }
+
+    private Entry relocate(Path original) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(original, BasicFileAttributes.class);
+        Path copy = Paths.get(cacheDir).resolve(original.getFileName());
+
+        try (FileChannel in = FileChannel.open(original, StandardOpenOption.READ)) {
+            List<Box> boxes = Mp4Boxes.readTopLevel(in);
+            Box moov = Mp4Boxes.find(boxes, Mp4Boxes.MOOV);
+            Box mdat = Mp4Boxes.find(boxes, Mp4Boxes.MDAT);
+            if (moov == null) {
+                return new Entry(Status.SKIPPED, "no moov box");
+            }
+            if (mdat == null || moov.offset() < mdat.offset()) {
+                return new Entry(Status.FASTSTART, "moov already precedes mdat");
+            }
+
+            Entry rewritten = new Entry(Status.REWRITTEN, "moov moved from offset " + moov.offset());
+            rewritten.copy = copy;
+            rewritten.sourceSize = attributes.size();
+            rewritten.sourceModified = attributes.lastModifiedTime().toMillis();
+            // A copy from a previous run is reused as long as it is newer than the source
+            if (Files.exists(copy) && Files.size(copy) == attributes.size()
+                    && Files.getLastModifiedTime(copy).toMillis() >= rewritten.sourceModified) {
+                log.info("[FASTSTART] Reusing faststart copy of {}", original);
+                return rewritten;
+            }
+
+            Box ftyp = boxes.get(0).type() == Mp4Boxes.FTYP ? boxes.get(0) : null;
+            long insertAt = ftyp != null ? ftyp.end() : 0;
+            ByteBuffer moovBytes = Mp4Boxes.readBox(in, moov);
+            String problem = shiftChunkOffsets(moovBytes, moov, insertAt);
+            if (problem != null) {
+                return new Entry(Status.SKIPPED, problem);
+            }
+
+            Files.createDirectories(copy.getParent());
+            Path tmp = copy.resolveSibling(copy.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                if (ftyp != null) {
+                    copyRegion(in, ftyp.offset(), ftyp.size(), out);
+                }
+                while (moovBytes.hasRemaining()) {
+                    out.write(moovBytes);
+                }
+                for (Box box : boxes) {
+                    if (box != ftyp && box != moov) {
+                        copyRegion(in, box.offset(), box.size(), out);
+                    }
+                }
+                out.force(false);
+            }
+            Files.move(tmp, copy, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("[FASTSTART] Rewrote {} ({} bytes moov) into {}", original, moov.size(), copy);
+            return rewritten;
+        }
+    }
+
+    /**
+     * Moving moov in front of the media shifts every chunk stored between the insertion point
+     * and the old moov position by the moov size; patches stco/co64 of every track in place.
+     * Returns a reason when the file cannot be rewritten this way.
+     */
+    private String shiftChunkOffsets(ByteBuffer moovBytes, Box moov, long insertAt) throws IOException {
+        Box root = new Box(Mp4Boxes.MOOV, 0, moov.size(), moov.headerSize());
+        for (Box trak : Mp4Boxes.children(moovBytes, root.payloadOffset(), root.end())) {
+            if (trak.type() != Mp4Boxes.TRAK) {
+                continue;
+            }
+            Box mdia = Mp4Boxes.child(moovBytes, trak, Mp4Boxes.MDIA);
+            Box stbl = Mp4Boxes.child(moovBytes, Mp4Boxes.child(moovBytes, mdia, Mp4Boxes.MINF), Mp4Boxes.STBL);
+            if (stbl == null) {
+                continue;
+            }
+            for (Box table : Mp4Boxes.children(moovBytes, stbl.payloadOffset(), stbl.end())) {
+                boolean wide = table.type() == Mp4Boxes.CO64;
+                if (!wide && table.type() != Mp4Boxes.STCO) {
+                    continue;
+                }
+                int base = (int) table.payloadOffset() + 8;
+                int count = moovBytes.getInt((int) table.payloadOffset() + 4);
+                for (int i = 0; i < count; i++) {
+                    long offset = wide ? moovBytes.getLong(base + i * 8) : moovBytes.getInt(base + i * 4) & 0xFFFFFFFFL;
+                    if (offset < insertAt || offset >= moov.offset()) {
+                        continue;
+                    }
+                    long shifted = offset + moov.size();
+                    if (wide) {
+                        moovBytes.putLong(base + i * 8, shifted);
+                    } else if (shifted > 0xFFFFFFFFL) {
+                        return "chunk offsets overflow stco, needs co64";
+                    } else {
+                        moovBytes.putInt(base + i * 4, (int) shifted);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private void copyRegion(FileChannel in, long position, long count, FileChannel out) throws IOException {
+        long end = position + count;
+        while (position < end) {
+            long copied = in.transferTo(position, end - position, out);
+            if (copied <= 0) {
+                throw new IOException("Short copy at offset " + position);
+            }
+            position += copied;
+        }
+    }
+
+    private boolean matchesSource(Entry entry, Path original) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(original, BasicFileAttributes.class);
+            return attributes.size() == entry.sourceSize
+                    && attributes.lastModifiedTime().toMillis() == entry.sourceModified
+                    && Files.exists(entry.copy);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static final class Entry {
+        private final Status status;
+        private final String detail;
+        private final LocalDateTime analysedAt = LocalDateTime.now();
+        private Path copy;
+        private long sourceSize;
+        private long sourceModified;
+        private volatile long checkedAt = System.currentTimeMillis();
+
+        private Entry(Status status, String detail) {
+            this.status = status;
+            this.detail = detail;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.harsh.metricsPlay.service.streaming;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.harsh.metricsPlay.model.dto.FilmDTO;
+import com.harsh.metricsPlay.service.FilmService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Near-cache of film id -> video file used by the stream endpoint, so the dozens of range
+ * requests of one playback resolve their file without a database round trip.
+ * Films are read-only here, so entries only leave by TTL or when their file goes missing.
+ */
+@Component
+@Slf4j
+public class FilmStreamCache {
+
+    private final FilmService filmService;
+    private final ConcurrentHashMap<Long, CachedFilm> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Value("${streaming.film-cache.ttl-ms:300000}")
+    private long ttlMs;
+
+    public FilmStreamCache(FilmService filmService) {
+        this.filmService = filmService;
+    }
+
+    public CachedFilm get(Long filmId) {
+        long now = System.currentTimeMillis();
+        CachedFilm cached = entries.get(filmId);
+        if (cached != null && now < cached.expiresAt()) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        // Throws FilmNotFoundException for unknown ids, which are deliberately not cached
+        FilmDTO film = filmService.getFilm(filmId);
+        cached = new CachedFilm(film.getTitle(), film.getVideoUrl(), now + ttlMs);
+        entries.put(filmId, cached);
+        log.debug("[FILM-CACHE] Cached film {} -> {}", filmId, film.getVideoUrl());
+        return cached;
+    }
+
+    public void invalidate(Long filmId) {
+        entries.remove(filmId);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("ttlMs", ttlMs);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    public record CachedFilm(String title, String videoFilename, long expiresAt) {
+    }
+}
@@ -0,0 +1,158 @@
+package com.harsh.metricsPlay.service.streaming;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal ISO BMFF (MP4) box walking, just enough for the sample index and faststart rewrite.
+ */
+final class Mp4Boxes {
+
+    static final int FTYP = fourcc("ftyp");
+    static final int MOOV = fourcc("moov");
+    static final int MDAT = fourcc("mdat");
+    static final int MVHD = fourcc("mvhd");
+    static final int TRAK = fourcc("trak");
+    static final int MDIA = fourcc("mdia");
+    static final int MDHD = fourcc("mdhd");
+    static final int HDLR = fourcc("hdlr");
+    static final int MINF = fourcc("minf");
+    static final int STBL = fourcc("stbl");
+    static final int STTS = fourcc("stts");
+    static final int STSS = fourcc("stss");
+    static final int STSC = fourcc("stsc");
+    static final int STSZ = fourcc("stsz");
+    static final int STCO = fourcc("stco");
+    static final int CO64 = fourcc("co64");
+    static final int VIDE = fourcc("vide");
+
+    // moov holds the sample tables only, anything bigger is not a file we want to parse in memory
+    static final int MAX_MOOV_SIZE = 64 * 1024 * 1024;
+
+    private Mp4Boxes() {
+    }
+
+    /**
+     * A box located at {@code offset} (in the file, or in a buffer for nested boxes).
+     */
+    record Box(int type, long offset, long size, int headerSize) {
+        long payloadOffset() {
+            return offset + headerSize;
+        }
+
+        long end() {
+            return offset + size;
+        }
+    }
+
+    static int fourcc(String type) {
+        byte[] bytes = type.getBytes(StandardCharsets.US_ASCII);
+        return (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF);
+    }
+
+    static List<Box> readTopLevel(FileChannel channel) throws IOException {
+        List<Box> boxes = new ArrayList<>();
+        long fileSize = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(16);
+        while (position + 8 <= fileSize) {
+            header.clear().limit(8);
+            readFully(channel, header, position);
+            header.flip();
+            long size = header.getInt() & 0xFFFFFFFFL;
+            int type = header.getInt();
+            int headerSize = 8;
+            if (size == 1) {
+                header.clear().limit(8);
+                readFully(channel, header, position + 8);
+                header.flip();
+                size = header.getLong();
+                headerSize = 16;
+            } else if (size == 0) {
+                size = fileSize - position;
+            }
+            if (size < headerSize || position + size > fileSize) {
+                throw new IOException("Corrupt MP4 box at offset " + position);
+            }
+            boxes.add(new Box(type, position, size, headerSize));
+            position += size;
+        }
+        return boxes;
+    }
+
+    static Box find(List<Box> boxes, int type) {
+        for (Box box : boxes) {
+            if (box.type() == type) {
+                return box;
+            }
+        }
+        return null;
+    }
+
+    // Reads a top-level box payload (typically moov) into a heap buffer
+    static ByteBuffer readPayload(FileChannel channel, Box box) throws IOException {
+        long length = box.size() - box.headerSize();
+        if (length > MAX_MOOV_SIZE) {
+            throw new IOException("MP4 box too large to index: " + length + " bytes");
+        }
+        ByteBuffer payload = ByteBuffer.allocate((int) length);
+        readFully(channel, payload, box.payloadOffset());
+        payload.flip();
+        return payload;
+    }
+
+    // Reads a whole top-level box, header included
+    static ByteBuffer readBox(FileChannel channel, Box box) throws IOException {
+        if (box.size() > MAX_MOOV_SIZE) {
+            throw new IOException("MP4 box too large to load: " + box.size() + " bytes");
+        }
+        ByteBuffer bytes = ByteBuffer.allocate((int) box.size());
+        readFully(channel, bytes, box.offset());
+        bytes.flip();
+        return bytes;
+    }
+
+    /**
+     * Lists the boxes nested in {@code buffer} between {@code from} and {@code to}.
+     */
+    static List<Box> children(ByteBuffer buffer, long from, long to) throws IOException {
+        List<Box> boxes = new ArrayList<>();
+        long position = from;
+        while (position + 8 <= to) {
+            long size = buffer.getInt((int) position) & 0xFFFFFFFFL;
+            int type = buffer.getInt((int) position + 4);
+            int headerSize = 8;
+            if (size == 1) {
+                size = buffer.getLong((int) position + 8);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = to - position;
+            }
+            if (size < headerSize || position + size > to) {
+                throw new IOException("Corrupt MP4 box at moov offset " + position);
+            }
+            boxes.add(new Box(type, position, size, headerSize));
+            position += size;
+        }
+        return boxes;
+    }
+
+    static Box child(ByteBuffer buffer, Box parent, int type) throws IOException {
+        return parent == null ? null : find(children(buffer, parent.payloadOffset(), parent.end()), type);
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of MP4 file at offset " + position);
+            }
+            position += read;
+        }
+    }
+}
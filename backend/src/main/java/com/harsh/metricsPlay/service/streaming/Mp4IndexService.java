@@ -0,0 +1,45 @@
+package com.harsh.metricsPlay.service.streaming;
+
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.harsh.metricsPlay.model.dto.VideoFileMetadata;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Parses each served MP4 once and keeps its keyframe index until the file changes.
+ */
+@Component
+@Slf4j
+public class Mp4IndexService {
+
+    private final ConcurrentHashMap<Path, CachedIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the keyframe index of the file, or null when it cannot be indexed (not an MP4,
+     * no video track, corrupt tables). Failures are remembered so they are not re-parsed.
+     */
+    public Mp4SampleIndex getIndex(VideoFileMetadata video) {
+        CachedIndex cached = indexes.get(video.getPath());
+        if (cached != null && cached.lastModified() == video.getLastModified()) {
+            return cached.index();
+        }
+        Mp4SampleIndex index = null;
+        try {
+            long started = System.nanoTime();
+            index = Mp4SampleIndex.parse(video.getPath());
+            log.info("[MP4-INDEX] Indexed {} keyframes of {} in {} ms",
+                    index != null ? index.size() : 0, video.getPath(), (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("[MP4-INDEX] Could not index {}: {}", video.getPath(), e.getMessage());
+        }
+        indexes.put(video.getPath(), new CachedIndex(video.getLastModified(), index));
+        return index;
+    }
+
+    private record CachedIndex(long lastModified, Mp4SampleIndex index) {
+    }
+}
@@ -0,0 +1,190 @@
+package com.harsh.metricsPlay.service.streaming;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import com.harsh.metricsPlay.service.streaming.Mp4Boxes.Box;
+
+/**
+ * Keyframe time -> byte offset table of the first video track of an MP4, built once from
+ * moov/stbl and kept in primitive arrays so a seek resolves with a binary search.
+ */
+public final class Mp4SampleIndex {
+
+    private final double durationSeconds;
+    private final double[] keyframeTimes;
+    private final long[] keyframeOffsets;
+
+    private Mp4SampleIndex(double durationSeconds, double[] keyframeTimes, long[] keyframeOffsets) {
+        this.durationSeconds = durationSeconds;
+        this.keyframeTimes = keyframeTimes;
+        this.keyframeOffsets = keyframeOffsets;
+    }
+
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int size() {
+        return keyframeTimes.length;
+    }
+
+    public double getKeyframeTime(int i) {
+        return keyframeTimes[i];
+    }
+
+    public long getKeyframeOffset(int i) {
+        return keyframeOffsets[i];
+    }
+
+    /**
+     * Index of the last keyframe at or before {@code seconds} (the first one for earlier times).
+     */
+    public int keyframeAtOrBefore(double seconds) {
+        int i = Arrays.binarySearch(keyframeTimes, seconds);
+        if (i < 0) {
+            i = -i - 2; // insertion point - 1
+        }
+        return Math.max(0, Math.min(i, keyframeTimes.length - 1));
+    }
+
+    /**
+     * Parses {@code path}; returns null when the file has no moov or no video track.
+     */
+    public static Mp4SampleIndex parse(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Box moovBox = Mp4Boxes.find(Mp4Boxes.readTopLevel(channel), Mp4Boxes.MOOV);
+            if (moovBox == null) {
+                return null;
+            }
+            ByteBuffer moov = Mp4Boxes.readPayload(channel, moovBox);
+            List<Box> moovChildren = Mp4Boxes.children(moov, 0, moov.limit());
+
+            double duration = 0;
+            Box mvhd = Mp4Boxes.find(moovChildren, Mp4Boxes.MVHD);
+            if (mvhd != null) {
+                duration = readDuration(moov, (int) mvhd.payloadOffset());
+            }
+
+            for (Box trak : moovChildren) {
+                if (trak.type() != Mp4Boxes.TRAK) {
+                    continue;
+                }
+                Box mdia = Mp4Boxes.child(moov, trak, Mp4Boxes.MDIA);
+                Box hdlr = Mp4Boxes.child(moov, mdia, Mp4Boxes.HDLR);
+                // hdlr: version/flags(4) pre_defined(4) handler_type(4)
+                if (hdlr == null || moov.getInt((int) hdlr.payloadOffset() + 8) != Mp4Boxes.VIDE) {
+                    continue;
+                }
+                Box mdhd = Mp4Boxes.child(moov, mdia, Mp4Boxes.MDHD);
+                Box stbl = Mp4Boxes.child(moov, Mp4Boxes.child(moov, mdia, Mp4Boxes.MINF), Mp4Boxes.STBL);
+                if (mdhd == null || stbl == null) {
+                    return null;
+                }
+                long timescale = readTimescale(moov, (int) mdhd.payloadOffset());
+                return buildIndex(moov, stbl, timescale, duration);
+            }
+            return null;
+        }
+    }
+
+    private static Mp4SampleIndex buildIndex(ByteBuffer moov, Box stbl, long timescale, double duration) throws IOException {
+        List<Box> tables = Mp4Boxes.children(moov, stbl.payloadOffset(), stbl.end());
+        Box stts = Mp4Boxes.find(tables, Mp4Boxes.STTS);
+        Box stss = Mp4Boxes.find(tables, Mp4Boxes.STSS);
+        Box stsc = Mp4Boxes.find(tables, Mp4Boxes.STSC);
+        Box stsz = Mp4Boxes.find(tables, Mp4Boxes.STSZ);
+        Box stco = Mp4Boxes.find(tables, Mp4Boxes.STCO);
+        Box co64 = Mp4Boxes.find(tables, Mp4Boxes.CO64);
+        if (stts == null || stsc == null || stsz == null || (stco == null && co64 == null) || timescale <= 0) {
+            throw new IOException("Incomplete sample table");
+        }
+
+        // Full boxes: entries start after version/flags(4) + entry_count(4)
+        int sttsBase = (int) stts.payloadOffset() + 8;
+        int sttsCount = moov.getInt((int) stts.payloadOffset() + 4);
+        int stscBase = (int) stsc.payloadOffset() + 8;
+        int stscCount = moov.getInt((int) stsc.payloadOffset() + 4);
+        int stssBase = stss != null ? (int) stss.payloadOffset() + 8 : 0;
+        int stssCount = stss != null ? moov.getInt((int) stss.payloadOffset() + 4) : 0;
+        int uniformSize = moov.getInt((int) stsz.payloadOffset() + 4);
+        int sampleCount = moov.getInt((int) stsz.payloadOffset() + 8);
+        int stszBase = (int) stsz.payloadOffset() + 12;
+        Box chunkBox = co64 != null ? co64 : stco;
+        int chunkBase = (int) chunkBox.payloadOffset() + 8;
+        int chunkCount = moov.getInt((int) chunkBox.payloadOffset() + 4);
+
+        int keyCount = stss != null ? stssCount : sampleCount;
+        double[] times = new double[keyCount];
+        long[] offsets = new long[keyCount];
+        int k = 0;
+        long nextSync = stssCount > 0 ? moov.getInt(stssBase) & 0xFFFFFFFFL : Long.MAX_VALUE;
+
+        int sttsIndex = 0;
+        long sttsLeft = sttsCount > 0 ? moov.getInt(sttsBase) & 0xFFFFFFFFL : 0;
+        long delta = sttsCount > 0 ? moov.getInt(sttsBase + 4) & 0xFFFFFFFFL : 0;
+        long decodeTime = 0;
+
+        int stscIndex = 0;
+        int sample = 1;
+        for (int chunk = 1; chunk <= chunkCount && sample <= sampleCount && k < keyCount; chunk++) {
+            while (stscIndex + 1 < stscCount && moov.getInt(stscBase + (stscIndex + 1) * 12) <= chunk) {
+                stscIndex++;
+            }
+            int samplesPerChunk = moov.getInt(stscBase + stscIndex * 12 + 4);
+            long offset = co64 != null
+                    ? moov.getLong(chunkBase + (chunk - 1) * 8)
+                    : moov.getInt(chunkBase + (chunk - 1) * 4) & 0xFFFFFFFFL;
+
+            for (int s = 0; s < samplesPerChunk && sample <= sampleCount; s++, sample++) {
+                if (stss == null || sample == nextSync) {
+                    times[k] = (double) decodeTime / timescale;
+                    offsets[k] = offset;
+                    k++;
+                    if (stss != null) {
+                        nextSync = k < stssCount ? moov.getInt(stssBase + k * 4) & 0xFFFFFFFFL : Long.MAX_VALUE;
+                    }
+                    if (k == keyCount) {
+                        break;
+                    }
+                }
+                offset += uniformSize != 0 ? uniformSize : moov.getInt(stszBase + (sample - 1) * 4) & 0xFFFFFFFFL;
+                decodeTime += delta;
+                if (--sttsLeft <= 0 && sttsIndex + 1 < sttsCount) {
+                    sttsIndex++;
+                    sttsLeft = moov.getInt(sttsBase + sttsIndex * 8) & 0xFFFFFFFFL;
+                    delta = moov.getInt(sttsBase + sttsIndex * 8 + 4) & 0xFFFFFFFFL;
+                }
+            }
+        }
+
+        if (duration <= 0) {
+            // No movie duration: sum stts, the walk above stops at the last keyframe
+            long totalTicks = 0;
+            for (int i = 0; i < sttsCount; i++) {
+                totalTicks += (moov.getInt(sttsBase + i * 8) & 0xFFFFFFFFL) * (moov.getInt(sttsBase + i * 8 + 4) & 0xFFFFFFFFL);
+            }
+            duration = (double) totalTicks / timescale;
+        }
+        return new Mp4SampleIndex(duration, Arrays.copyOf(times, k), Arrays.copyOf(offsets, k));
+    }
+
+    // mvhd: version(1) flags(3) then creation/modification times (4 or 8 bytes each), timescale, duration
+    private static double readDuration(ByteBuffer moov, int payload) {
+        boolean v1 = moov.get(payload) == 1;
+        long timescale = moov.getInt(payload + (v1 ? 20 : 12)) & 0xFFFFFFFFL;
+        long duration = v1 ? moov.getLong(payload + 24) : moov.getInt(payload + 16) & 0xFFFFFFFFL;
+        return timescale > 0 ? (double) duration / timescale : 0;
+    }
+
+    // mdhd shares the mvhd layout up to the timescale
+    private static long readTimescale(ByteBuffer moov, int payload) {
+        boolean v1 = moov.get(payload) == 1;
+        return moov.getInt(payload + (v1 ? 20 : 12)) & 0xFFFFFFFFL;
+    }
+}
@@ -0,0 +1,176 @@
+package com.harsh.metricsPlay.service.streaming;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.harsh.metricsPlay.model.dto.FilmStreamDescriptor;
+import com.harsh.metricsPlay.model.dto.VideoFileMetadata;
+import com.harsh.metricsPlay.model.events.VideoEventDTO;
+import com.harsh.metricsPlay.service.StreamingService;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Warms the next seconds of a film ahead of each viewer's playback position, using the
+ * play/progress/seek events we already consume. Work runs on a single low-priority thread
+ * behind a bounded queue and a global byte budget, so it never competes with on-demand reads.
+ */
+@Component
+@Slf4j
+public class PlaybackPrefetchService {
+
+    private final StreamingService streamingService;
+    private final VideoSegmentCache segmentCache;
+    private final Mp4IndexService mp4IndexService;
+
+    @Value("${streaming.prefetch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${streaming.prefetch.lookahead-seconds:10}")
+    private double lookaheadSeconds;
+
+    @Value("${streaming.prefetch.max-bytes-per-second:33554432}")
+    private long maxBytesPerSecond;
+
+    @Value("${streaming.prefetch.queue-capacity:64}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+    private TokenBucket budget;
+    private ByteBuffer warmBuffer; // only touched by the prefetch thread
+
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicLong droppedQueueFull = new AtomicLong();
+    private final AtomicLong droppedBudget = new AtomicLong();
+    private final AtomicLong bytesWarmed = new AtomicLong();
+
+    public PlaybackPrefetchService(StreamingService streamingService, VideoSegmentCache segmentCache,
+                                   Mp4IndexService mp4IndexService) {
+        this.streamingService = streamingService;
+        this.segmentCache = segmentCache;
+        this.mp4IndexService = mp4IndexService;
+    }
+
+    @PostConstruct
+    void init() {
+        budget = new TokenBucket(maxBytesPerSecond, segmentCache.getSegmentSize());
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "playback-prefetch");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }, (task, pool) -> droppedQueueFull.incrementAndGet());
+    }
+
+    /**
+     * Called from the Kafka consumer thread, so it only enqueues.
+     */
+    public void onPlaybackEvent(VideoEventDTO event) {
+        if (!enabled || event.getFilmId() == null || event.getCurrentTime() == null) {
+            return;
+        }
+        requested.incrementAndGet();
+        // Same key as FilmController's playback key, so a playback pinned to the original warms the original
+        String playbackKey = event.getUserId() != null ? event.getUserId() + ":" + event.getFilmId() : null;
+        executor.execute(() -> prefetch(event.getFilmId(), playbackKey, event.getCurrentTime()));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("requested", requested.get());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("droppedQueueFull", droppedQueueFull.get());
+        stats.put("droppedBudget", droppedBudget.get());
+        stats.put("bytesWarmed", bytesWarmed.get());
+        stats.put("maxBytesPerSecond", maxBytesPerSecond);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void prefetch(Long filmId, String playbackKey, double position) {
+        try {
+            FilmStreamDescriptor film = streamingService.resolveFilmStream(filmId, playbackKey, true, null);
+            VideoFileMetadata video = film.getVideo();
+            if (video == null || video.getFileSize() == 0) {
+                return;
+            }
+            Mp4SampleIndex index = mp4IndexService.getIndex(video);
+            if (index == null || index.getDurationSeconds() <= 0) {
+                return;
+            }
+            // Average bitrate is good enough to size the window, the keyframe index anchors its start
+            double bytesPerSecond = video.getFileSize() / index.getDurationSeconds();
+            long start = index.size() > 0 ? index.getKeyframeOffset(index.keyframeAtOrBefore(position)) : (long) (position * bytesPerSecond);
+            long end = Math.min(video.getFileSize(), (long) ((position + lookaheadSeconds) * bytesPerSecond));
+            if (end <= start) {
+                return;
+            }
+            if (segmentCache.isEnabled()) {
+                warmSegments(video, start, end);
+            } else {
+                warmPageCache(video.getPath(), start, end);
+            }
+        } catch (Exception e) {
+            log.debug("[PREFETCH] Skipped film {} at {}s: {}", filmId, position, e.getMessage());
+        }
+    }
+
+    private void warmSegments(VideoFileMetadata video, long start, long end) throws IOException {
+        int segmentSize = segmentCache.getSegmentSize();
+        for (long index = start / segmentSize; index * segmentSize < end; index++) {
+            if (segmentCache.contains(video.getPath(), index)) {
+                continue;
+            }
+            if (!budget.tryConsume(segmentSize)) {
+                droppedBudget.incrementAndGet();
+                return;
+            }
+            if (segmentCache.prefetch(video.getPath(), index, video.getFileSize())) {
+                bytesWarmed.addAndGet(Math.min(segmentSize, video.getFileSize() - index * segmentSize));
+            }
+        }
+    }
+
+    // Without the segment cache, reading the range once is enough to pull it into the OS page cache
+    private void warmPageCache(Path path, long start, long end) throws IOException {
+        if (warmBuffer == null) {
+            warmBuffer = ByteBuffer.allocateDirect(64 * 1024);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long position = start;
+            while (position < end) {
+                int length = (int) Math.min(warmBuffer.capacity(), end - position);
+                if (!budget.tryConsume(length)) {
+                    droppedBudget.incrementAndGet();
+                    break;
+                }
+                warmBuffer.clear().limit(length);
+                int read = channel.read(warmBuffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                position += read;
+            }
+            bytesWarmed.addAndGet(position - start);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.harsh.metricsPlay.service.streaming;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Shares streaming read bandwidth between viewers with deficit round-robin. Every stream
+ * (user + film) is a flow; transfers ask for a grant before moving each chunk, and flows
+ * waiting for the global or their own rate cap are served in turn, a quantum per visit.
+ * A flow that has not been served yet joins at the head, so new streams get their first
+ * bytes ahead of long-running downloads. With neither cap set nothing would ever wait, so
+ * the scheduler stays out of the way entirely: no flows, no lock.
+ */
+@Component
+@Slf4j
+public class StreamIoScheduler {
+
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    @Value("${streaming.io-scheduler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${streaming.io-scheduler.quantum:65536}")
+    private int quantum;
+
+    @Value("${streaming.io-scheduler.global-bytes-per-second:0}")
+    private long globalBytesPerSecond;
+
+    @Value("${streaming.io-scheduler.per-stream-bytes-per-second:0}")
+    private long perStreamBytesPerSecond;
+
+    @Value("${streaming.io-scheduler.flow-idle-ms:60000}")
+    private long flowIdleMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition granted = lock.newCondition();
+    // All guarded by lock
+    private final Map<String, Flow> flows = new HashMap<>();
+    private final ArrayDeque<Flow> backlog = new ArrayDeque<>();
+    private TokenBucket globalBudget;
+    private int waitingTickets;
+    private long lastSweep = System.nanoTime();
+
+    private final AtomicLong grants = new AtomicLong();
+    private final AtomicLong delayedGrants = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        globalBudget = new TokenBucket(globalBytesPerSecond, quantum);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Only a rate cap makes flows wait, without one the grants would be pure overhead
+    public boolean isShaping() {
+        return enabled && (globalBytesPerSecond > 0 || perStreamBytesPerSecond > 0);
+    }
+
+    // Transfers are split into chunks of this size, one grant each
+    public int getQuantum() {
+        return quantum;
+    }
+
+    public Flow flow(String key) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (now - lastSweep > SWEEP_INTERVAL_NANOS) {
+                sweepIdleFlows(now);
+            }
+            Flow flow = flows.computeIfAbsent(key, k -> new Flow(k, new TokenBucket(perStreamBytesPerSecond, quantum)));
+            flow.lastActive = now;
+            return flow;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until {@code flow} may move {@code bytes} (at most one quantum) to its client.
+     */
+    public void acquire(Flow flow, int bytes) throws InterruptedIOException {
+        if (!isShaping()) {
+            return;
+        }
+        lock.lock();
+        try {
+            Ticket ticket = new Ticket(bytes);
+            flow.pending.addLast(ticket);
+            if (!flow.queued) {
+                flow.queued = true;
+                if (flow.bytesGranted == 0) {
+                    backlog.addFirst(flow);
+                } else {
+                    backlog.addLast(flow);
+                }
+            }
+            long wait = dispatch();
+            if (!ticket.granted) {
+                waitingTickets++;
+                try {
+                    while (!ticket.granted) {
+                        granted.awaitNanos(wait > 0 ? Math.min(wait, MAX_WAIT_NANOS) : MAX_WAIT_NANOS);
+                        wait = dispatch();
+                    }
+                } catch (InterruptedException e) {
+                    flow.pending.remove(ticket);
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for stream bandwidth");
+                } finally {
+                    waitingTickets--;
+                }
+                delayedGrants.incrementAndGet();
+            }
+            grants.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        List<Map<String, Object>> flowStats = new ArrayList<>();
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            int queueDepth = 0;
+            for (Flow flow : flows.values()) {
+                queueDepth += flow.pending.size();
+                Map<String, Object> entry = new HashMap<>();
+                entry.put("flow", flow.key);
+                entry.put("bytes", flow.bytesGranted);
+                entry.put("bytesPerSecond", flow.bytesPerSecond(now));
+                entry.put("pending", flow.pending.size());
+                flowStats.add(entry);
+            }
+            stats.put("flows", flows.size());
+            stats.put("backloggedFlows", backlog.size());
+            stats.put("queueDepth", queueDepth);
+            stats.put("waitingThreads", waitingTickets);
+        } finally {
+            lock.unlock();
+        }
+        flowStats.sort(Comparator.comparing(entry -> -((Number) entry.get("bytesPerSecond")).doubleValue()));
+        stats.put("enabled", enabled);
+        stats.put("shaping", isShaping());
+        stats.put("quantum", quantum);
+        stats.put("globalBytesPerSecond", globalBytesPerSecond);
+        stats.put("perStreamBytesPerSecond", perStreamBytesPerSecond);
+        stats.put("grants", grants.get());
+        stats.put("delayedGrants", delayedGrants.get());
+        stats.put("streams", flowStats);
+        return stats;
+    }
+
+    /**
+     * One DRR pass: the head flow gets a quantum of credit when it cannot cover its next
+     * chunk, is served while credit and rate caps allow, then goes to the back. Returns how
+     * long to wait before the next pass can make progress (0 when the backlog drained).
+     */
+    private long dispatch() {
+        long wait = 0;
+        int blocked = 0;
+        while (!backlog.isEmpty() && blocked < backlog.size()) {
+            Flow flow = backlog.peekFirst();
+            Ticket next = flow.pending.peekFirst();
+            boolean rateLimited = false;
+            if (next != null && flow.deficit < next.bytes) {
+                flow.deficit += quantum;
+            }
+            while (next != null && next.bytes <= flow.deficit) {
+                long globalWait = globalBudget.nanosUntil(next.bytes);
+                if (globalWait > 0) {
+                    // The shared budget is exhausted, the head keeps its turn for the next pass
+                    return globalWait;
+                }
+                long flowWait = flow.budget.nanosUntil(next.bytes);
+                if (flowWait > 0) {
+                    wait = wait == 0 ? flowWait : Math.min(wait, flowWait);
+                    rateLimited = true;
+                    break;
+                }
+                grant(flow, next);
+                blocked = 0;
+                next = flow.pending.peekFirst();
+            }
+            backlog.pollFirst();
+            if (flow.pending.isEmpty()) {
+                flow.queued = false;
+                flow.deficit = 0;
+            } else {
+                backlog.addLast(flow);
+                if (rateLimited) {
+                    blocked++;
+                }
+            }
+        }
+        return wait;
+    }
+
+    private void grant(Flow flow, Ticket ticket) {
+        flow.pending.pollFirst();
+        flow.deficit -= ticket.bytes;
+        globalBudget.tryConsume(ticket.bytes);
+        flow.budget.tryConsume(ticket.bytes);
+        flow.record(ticket.bytes, System.nanoTime());
+        ticket.granted = true;
+        granted.signalAll();
+    }
+
+    private void sweepIdleFlows(long now) {
+        lastSweep = now;
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(flowIdleMs);
+        Iterator<Flow> it = flows.values().iterator();
+        while (it.hasNext()) {
+            Flow flow = it.next();
+            if (!flow.queued && now - flow.lastActive > idleNanos) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Scheduling state of one stream. Obtain through {@link #flow(String)}.
+     */
+    public static final class Flow {
+        private final String key;
+        private final TokenBucket budget;
+        private final ArrayDeque<Ticket> pending = new ArrayDeque<>();
+        private boolean queued;
+        private long deficit;
+        private long bytesGranted;
+        private long lastActive;
+        private long windowStart = System.nanoTime();
+        private long windowBytes;
+        private double lastRate;
+
+        private Flow(String key, TokenBucket budget) {
+            this.key = key;
+            this.budget = budget;
+        }
+
+        private void record(int bytes, long now) {
+            bytesGranted += bytes;
+            windowBytes += bytes;
+            lastActive = now;
+            if (now - windowStart >= TimeUnit.SECONDS.toNanos(1)) {
+                lastRate = windowBytes * 1_000_000_000d / (now - windowStart);
+                windowStart = now;
+                windowBytes = 0;
+            }
+        }
+
+        // Rate over the last full second, 0 once the stream has gone quiet
+        private double bytesPerSecond(long now) {
+            return now - lastActive > TimeUnit.SECONDS.toNanos(2) ? 0 : lastRate;
+        }
+    }
+
+    private static final class Ticket {
+        private final int bytes;
+        private boolean granted;
+
+        private Ticket(int bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.harsh.metricsPlay.service.streaming;
+
+/**
+ * Byte-rate limiter with one second of burst. A rate of zero or less means unlimited.
+ * Not thread-safe, callers synchronize.
+ */
+final class TokenBucket {
+
+    private final long bytesPerSecond;
+    private final long capacity;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(long bytesPerSecond, long minCapacity) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.capacity = Math.max(bytesPerSecond, minCapacity);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    boolean isUnlimited() {
+        return bytesPerSecond <= 0;
+    }
+
+    boolean tryConsume(long bytes) {
+        if (isUnlimited()) {
+            return true;
+        }
+        refill(System.nanoTime());
+        if (tokens < bytes) {
+            return false;
+        }
+        tokens -= bytes;
+        return true;
+    }
+
+    // Time until {@code bytes} tokens are available, 0 when they already are
+    long nanosUntil(long bytes) {
+        if (isUnlimited()) {
+            return 0;
+        }
+        refill(System.nanoTime());
+        double missing = bytes - tokens;
+        return missing <= 0 ? 0 : (long) (missing * 1_000_000_000d / bytesPerSecond);
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * bytesPerSecond / 1_000_000_000d);
+        lastRefill = now;
+    }
+}
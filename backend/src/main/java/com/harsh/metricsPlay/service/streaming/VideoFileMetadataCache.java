@@ -0,0 +1,84 @@
+package com.harsh.metricsPlay.service.streaming;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+
+import com.harsh.metricsPlay.model.dto.VideoFileMetadata;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Size, mtime, ETag and content type per video file. Entries are re-stat'ed at most once
+ * per revalidate interval instead of on every chunk request.
+ */
+@Component
+@Slf4j
+public class VideoFileMetadataCache {
+
+    private final VideoSegmentCache segmentCache;
+    private final ConcurrentHashMap<Path, VideoFileMetadata> entries = new ConcurrentHashMap<>();
+
+    @Value("${streaming.metadata-cache.revalidate-ms:5000}")
+    private long revalidateMs;
+
+    public VideoFileMetadataCache(VideoSegmentCache segmentCache) {
+        this.segmentCache = segmentCache;
+    }
+
+    /**
+     * Returns the metadata for {@code path}, or null when the file does not exist.
+     */
+    public VideoFileMetadata get(Path path) throws IOException {
+        VideoFileMetadata cached = entries.get(path);
+        long now = System.currentTimeMillis();
+        if (cached != null && now - cached.getCheckedAt() < revalidateMs) {
+            return cached;
+        }
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            if (entries.remove(path) != null) {
+                segmentCache.invalidate(path);
+            }
+            return null;
+        }
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        if (cached != null && cached.getFileSize() == size && cached.getLastModified() == lastModified) {
+            cached.setCheckedAt(now);
+            return cached;
+        }
+        if (cached != null) {
+            log.info("[METADATA-CACHE] {} changed on disk, dropping cached segments", path);
+            segmentCache.invalidate(path);
+        }
+
+        VideoFileMetadata metadata = VideoFileMetadata.builder()
+                .path(path)
+                .fileSize(size)
+                .lastModified(lastModified)
+                .etag("\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"")
+                .contentType(MediaTypeFactory.getMediaType(path.getFileName().toString())
+                        .orElse(MediaType.APPLICATION_OCTET_STREAM).toString())
+                .checkedAt(now)
+                .build();
+        entries.put(path, metadata);
+        return metadata;
+    }
+
+    public void invalidate(Path path) {
+        entries.remove(path);
+    }
+}
@@ -0,0 +1,185 @@
+package com.harsh.metricsPlay.service.streaming;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Shared LRU cache of fixed-size, read-only memory-mapped segments of the video files.
+ * Mapped segments live outside the heap and are backed by the OS page cache, so hot
+ * films are served without re-opening and seeking the file on every range request.
+ * <p>
+ * The byte cap is advisory: eviction only drops the cache's reference, and the mapping is
+ * released when the buffer is garbage collected. Unmapping eagerly would crash readers still
+ * writing from a duplicate, so address space can briefly exceed {@code max-bytes} under churn.
+ */
+@Component
+@Slf4j
+public class VideoSegmentCache {
+
+    @Value("${streaming.segment-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${streaming.segment-cache.segment-size:1048576}")
+    private int segmentSize;
+
+    @Value("${streaming.segment-cache.max-bytes:268435456}")
+    private long maxBytes;
+
+    // Access-ordered, so iteration starts at the least recently used segment
+    private final LinkedHashMap<SegmentKey, Segment> segments = new LinkedHashMap<>(256, 0.75f, true);
+    private long usedBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong prefetched = new AtomicLong();
+    private final AtomicLong prefetchHits = new AtomicLong();
+    private final AtomicLong prefetchWasted = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Returns a private view (own position/limit) of the segment holding {@code index}.
+     */
+    public ByteBuffer getSegment(Path path, long index, long fileSize) throws IOException {
+        SegmentKey key = new SegmentKey(path, index);
+        synchronized (segments) {
+            Segment cached = segments.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                if (cached.prefetched) {
+                    cached.prefetched = false;
+                    prefetchHits.incrementAndGet();
+                }
+                return cached.buffer.duplicate();
+            }
+        }
+        misses.incrementAndGet();
+        return insert(key, map(path, index, fileSize), false).duplicate();
+    }
+
+    public boolean contains(Path path, long index) {
+        synchronized (segments) {
+            return segments.containsKey(new SegmentKey(path, index));
+        }
+    }
+
+    /**
+     * Maps a segment ahead of demand and faults its pages in. Returns false when it was
+     * already cached.
+     */
+    public boolean prefetch(Path path, long index, long fileSize) throws IOException {
+        if (contains(path, index)) {
+            return false;
+        }
+        MappedByteBuffer mapped = map(path, index, fileSize);
+        mapped.load();
+        insert(new SegmentKey(path, index), mapped, true);
+        prefetched.incrementAndGet();
+        return true;
+    }
+
+    public void invalidate(Path path) {
+        synchronized (segments) {
+            Iterator<Map.Entry<SegmentKey, Segment>> it = segments.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<SegmentKey, Segment> entry = it.next();
+                if (entry.getKey().path().equals(path)) {
+                    usedBytes -= entry.getValue().buffer.capacity();
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        synchronized (segments) {
+            stats.put("segments", segments.size());
+            stats.put("usedBytes", usedBytes);
+        }
+        stats.put("enabled", enabled);
+        stats.put("maxBytes", maxBytes);
+        stats.put("segmentSize", segmentSize);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.get());
+        stats.put("prefetchedSegments", prefetched.get());
+        stats.put("prefetchHits", prefetchHits.get());
+        stats.put("prefetchEvictedUnused", prefetchWasted.get());
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        return stats;
+    }
+
+    private ByteBuffer insert(SegmentKey key, ByteBuffer mapped, boolean prefetch) {
+        synchronized (segments) {
+            Segment raced = segments.get(key);
+            if (raced != null) {
+                return raced.buffer;
+            }
+            segments.put(key, new Segment(mapped, prefetch));
+            usedBytes += mapped.capacity();
+            evictIfNeeded();
+        }
+        return mapped;
+    }
+
+    private MappedByteBuffer map(Path path, long index, long fileSize) throws IOException {
+        long offset = index * segmentSize;
+        long length = Math.min(segmentSize, fileSize - offset);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+    }
+
+    // Evicted buffers are not unmapped here, responses in flight may still hold a duplicate
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<SegmentKey, Segment>> it = segments.entrySet().iterator();
+        while (usedBytes > maxBytes && it.hasNext()) {
+            Map.Entry<SegmentKey, Segment> eldest = it.next();
+            usedBytes -= eldest.getValue().buffer.capacity();
+            it.remove();
+            evictions.incrementAndGet();
+            if (eldest.getValue().prefetched) {
+                prefetchWasted.incrementAndGet();
+            }
+            log.trace("[SEGMENT-CACHE] Evicted segment {} of {}", eldest.getKey().index(), eldest.getKey().path());
+        }
+    }
+
+    private record SegmentKey(Path path, long index) {
+    }
+
+    private static final class Segment {
+        private final ByteBuffer buffer;
+        private boolean prefetched; // guarded by segments
+
+        private Segment(ByteBuffer buffer, boolean prefetched) {
+            this.buffer = buffer;
+            this.prefetched = prefetched;
+        }
+    }
+}
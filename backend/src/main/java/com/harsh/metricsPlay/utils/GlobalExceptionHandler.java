@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import com.harsh.metricsPlay.exception.DBAccessException;
 import com.harsh.metricsPlay.exception.FilmNotFoundException;
 import com.harsh.metricsPlay.exception.InvalidCredentialsException;
+import com.harsh.metricsPlay.exception.InvalidEventBatchException;
 import com.harsh.metricsPlay.exception.UserNotFoundException;
 import com.harsh.metricsPlay.model.dto.ErrorResponseDTO;
 
@@ -26,6 +27,12 @@ public class GlobalExceptionHandler {
                 .body(new ErrorResponseDTO(ex.getMessage()));
     }
 
+    @ExceptionHandler(InvalidEventBatchException.class)
+    public ResponseEntity<ErrorResponseDTO> handleInvalidEventBatch(InvalidEventBatchException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new ErrorResponseDTO(ex.getMessage()));
+    }
+
     @ExceptionHandler(DBAccessException.class)
     public ResponseEntity<ErrorResponseDTO> handleDBAccess(DBAccessException ex) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -0,0 +1,74 @@
+package com.harsh.metricsPlay.utils;
+
+import java.util.Collections;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.stereotype.Component;
+
+import com.harsh.metricsPlay.repository.UserRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Authenticates a STOMP session once, from the Authorization header of its CONNECT frame.
+ * Anonymous sessions may still subscribe to the public topics, but anything sent to the
+ * application prefix (event ingestion) needs an authenticated session.
+ */
+@Component
+@Slf4j
+public class StompAuthInterceptor implements ChannelInterceptor {
+
+    private final JwtUtil jwtUtil;
+    private final UserRepository userRepository;
+
+    StompAuthInterceptor(JwtUtil jwtUtil, UserRepository userRepository) {
+        this.jwtUtil = jwtUtil;
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            return message;
+        }
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            String authHeader = accessor.getFirstNativeHeader("Authorization");
+            if (authHeader != null) {
+                // The user is bound to the session and carried by every later frame
+                accessor.setUser(authenticate(authHeader));
+            }
+        } else if (StompCommand.SEND.equals(accessor.getCommand()) && accessor.getUser() == null) {
+            log.warn("[WS-AUTH] Rejected SEND to {} from unauthenticated session {}", accessor.getDestination(), accessor.getSessionId());
+            throw new MessagingException("Authentication required to send events");
+        }
+        return message;
+    }
+
+    private UsernamePasswordAuthenticationToken authenticate(String authHeader) {
+        if (!authHeader.startsWith("Bearer ")) {
+            throw new MessagingException("Unsupported Authorization header");
+        }
+        String token = authHeader.substring(7);
+        String username;
+        try {
+            username = jwtUtil.extractUsername(token);
+        } catch (Exception e) {
+            throw new MessagingException("Invalid JWT token");
+        }
+        if (username == null || !userRepository.existsByUsername(username) || !jwtUtil.validateToken(token, username)) {
+            throw new MessagingException("Invalid JWT token or user not found");
+        }
+        log.info("[WS-AUTH] STOMP session authenticated for user {}", username);
+        User user = new User(username, "", Collections.emptyList());
+        return new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+    }
+}
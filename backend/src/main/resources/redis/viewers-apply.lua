@@ -0,0 +1,58 @@
+-- Applies viewer joins, heartbeats and leaves, then returns the updated counts, atomically.
+--
+-- KEYS[1..n]   viewer sorted sets of the films being updated (n = ARGV[2]), member = user,
+--              score = last heartbeat in epoch seconds
+-- KEYS[n+1]    set of film ids that currently have viewers
+-- KEYS[n+2]    global viewer counter
+-- ARGV[1]      key TTL in seconds, a backstop for films nobody is reaping
+-- ARGV[2]      n
+-- ARGV[3..n+2] film id of each of KEYS[1..n]
+-- ARGV[n+3..]  triples of (index into KEYS[1..n], op, member); op is join, heartbeat or leave
+--
+-- The counter moves only when a set really gains or loses a member, so repeated heartbeats
+-- and duplicate leaves leave it alone. Stale members are trimmed by viewers-reap.lua.
+-- Returns the n film counts followed by the total.
+
+local ttl = tonumber(ARGV[1])
+local n = tonumber(ARGV[2])
+local active = KEYS[n + 1]
+local total = KEYS[n + 2]
+local now = tonumber(redis.call('TIME')[1])
+
+local delta = 0
+for i = n + 3, #ARGV, 3 do
+  local key = KEYS[tonumber(ARGV[i])]
+  local op = ARGV[i + 1]
+  local member = ARGV[i + 2]
+  if op == 'leave' then
+    delta = delta - redis.call('ZREM', key, member)
+  else
+    delta = delta + redis.call('ZADD', key, now, member)
+    redis.call('EXPIRE', key, ttl)
+  end
+end
+
+local result = {}
+for i = 1, n do
+  local count = redis.call('ZCARD', KEYS[i])
+  if count > 0 then
+    redis.call('SADD', active, ARGV[i + 2])
+  else
+    redis.call('SREM', active, ARGV[i + 2])
+  end
+  result[i] = count
+end
+
+local current
+if delta ~= 0 then
+  current = redis.call('INCRBY', total, delta)
+  if current < 0 then
+    -- Only possible after keys expired under the counter; the reaper fixes the rest
+    redis.call('SET', total, 0)
+    current = 0
+  end
+else
+  current = tonumber(redis.call('GET', total) or '0')
+end
+result[n + 1] = current
+return result
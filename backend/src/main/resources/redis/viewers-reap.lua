@@ -0,0 +1,62 @@
+-- Trims viewers whose last heartbeat is too old and brings the global counter back in line, atomically.
+--
+-- KEYS[1]      set of film ids that currently have viewers
+-- KEYS[2]      global viewer counter
+-- KEYS[3..]    viewer sorted sets of the films to reap, as read from KEYS[1] by the caller
+-- ARGV[1]      heartbeat timeout in seconds
+-- ARGV[2..]    film id of each of KEYS[3..]
+--
+-- Every key is passed in, but the keys still span hash slots, so the viewer scripts assume a
+-- single Redis node rather than a cluster. Films left without viewers are dropped from the registry.
+-- If the films passed in still cover the whole registry the counter is reset to the real
+-- sum, which also absorbs drift from keys expiring; otherwise a film joined after the caller
+-- read the registry and the counter only moves by what was removed.
+-- Returns {total, film id, count, film id, count, ...} for the films whose count changed,
+-- including films that were emptied, so their 0 gets broadcast.
+
+local active = KEYS[1]
+local total = KEYS[2]
+local now = redis.call('TIME')
+local cutoff = tonumber(now[1]) - tonumber(ARGV[1])
+
+local result = {0}
+local passed = {}
+local sum = 0
+local removedTotal = 0
+for i = 3, #KEYS do
+  local film = ARGV[i - 1]
+  passed[film] = true
+  local removed = redis.call('ZREMRANGEBYSCORE', KEYS[i], '-inf', '(' .. cutoff)
+  local count = redis.call('ZCARD', KEYS[i])
+  if count == 0 then
+    redis.call('SREM', active, film)
+  end
+  if removed > 0 or count == 0 then
+    result[#result + 1] = film
+    result[#result + 1] = count
+  end
+  sum = sum + count
+  removedTotal = removedTotal + removed
+end
+
+local covered = true
+for _, film in ipairs(redis.call('SMEMBERS', active)) do
+  if not passed[film] then
+    covered = false
+    break
+  end
+end
+
+local current
+if covered then
+  redis.call('SET', total, sum)
+  current = sum
+else
+  current = redis.call('INCRBY', total, -removedTotal)
+  if current < 0 then
+    redis.call('SET', total, 0)
+    current = 0
+  end
+end
+result[1] = current
+return result
@@ -0,0 +1,111 @@
+package com.harsh.metricsPlay.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.harsh.metricsPlay.model.events.VideoEventDTO;
+import com.harsh.metricsPlay.service.kafka.EventProducerService;
+
+class ProgressEventCoalescerTest {
+
+    private EventProducerService eventProducerService;
+    private ProgressEventCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        eventProducerService = mock(EventProducerService.class);
+        coalescer = new ProgressEventCoalescer(eventProducerService);
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        ReflectionTestUtils.setField(coalescer, "intervalMs", 60_000L);
+        ReflectionTestUtils.setField(coalescer, "positionDeltaSeconds", 10.0);
+        ReflectionTestUtils.setField(coalescer, "idleTimeoutMs", 600_000L);
+    }
+
+    @Test
+    void heldProgressIsForwardedBeforeTheNextStateChange() {
+        coalescer.publish(List.of(event("e1", "progress", 5.0)));
+        coalescer.publish(List.of(event("e2", "progress", 7.0)));
+        coalescer.publish(List.of(event("e3", "pause", 8.0)));
+
+        assertThat(sentIds()).containsExactly("e1", "e2", "e3");
+    }
+
+    @Test
+    void onlyTheLatestHeldProgressSurvives() {
+        coalescer.publish(List.of(
+                event("e1", "progress", 5.0),
+                event("e2", "progress", 6.0),
+                event("e3", "progress", 7.0),
+                event("e4", "progress", 8.0),
+                event("e5", "ended", 9.0)));
+
+        assertThat(sentIds()).containsExactly("e1", "e4", "e5");
+        assertThat(coalescer.getStats()).containsEntry("coalesced", 2L);
+    }
+
+    @Test
+    void progressPastThePositionDeltaIsForwardedAtOnce() {
+        coalescer.publish(List.of(event("e1", "progress", 5.0), event("e2", "progress", 20.0)));
+
+        assertThat(sentIds()).containsExactly("e1", "e2");
+    }
+
+    @Test
+    void newerProgressReplacesTheHeldOneWhenForwarded() {
+        coalescer.publish(List.of(
+                event("e1", "progress", 5.0),
+                event("e2", "progress", 6.0),
+                event("e3", "progress", 30.0)));
+
+        assertThat(sentIds()).containsExactly("e1", "e3");
+    }
+
+    @Test
+    void heldProgressIsFlushedOnceItIsOld() {
+        coalescer.publish(List.of(event("e1", "progress", 5.0), event("e2", "progress", 6.0)));
+        ReflectionTestUtils.setField(coalescer, "intervalMs", 0L);
+
+        coalescer.flushHeld();
+
+        assertThat(sentIds()).containsExactly("e1", "e2");
+    }
+
+    @Test
+    void disabledCoalescerForwardsEverything() {
+        ReflectionTestUtils.setField(coalescer, "enabled", false);
+
+        coalescer.publish(List.of(event("e1", "progress", 5.0), event("e2", "progress", 6.0)));
+
+        assertThat(sentIds()).containsExactly("e1", "e2");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> sentIds() {
+        ArgumentCaptor<List<VideoEventDTO>> batches = ArgumentCaptor.forClass(List.class);
+        verify(eventProducerService, atLeastOnce()).sendVideoEvents(batches.capture());
+        List<String> ids = new ArrayList<>();
+        batches.getAllValues().forEach(batch -> batch.forEach(event -> ids.add(event.getEventId())));
+        return ids;
+    }
+
+    private static VideoEventDTO event(String eventId, String type, Double position) {
+        VideoEventDTO event = new VideoEventDTO();
+        event.setEventId(eventId);
+        event.setSessionId("s1");
+        event.setUserId("viewer");
+        event.setFilmId(1L);
+        event.setEventType(type);
+        event.setCurrentTime(position);
+        return event;
+    }
+}
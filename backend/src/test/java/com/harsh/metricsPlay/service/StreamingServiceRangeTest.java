@@ -0,0 +1,142 @@
+package com.harsh.metricsPlay.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.harsh.metricsPlay.exception.RangeNotSatisfiableException;
+import com.harsh.metricsPlay.model.dto.ByteRange;
+import com.harsh.metricsPlay.model.dto.VideoFileMetadata;
+import com.harsh.metricsPlay.model.dto.VideoStreamDTO;
+
+class StreamingServiceRangeTest {
+
+    private static final long FILE_SIZE = 1000;
+
+    private StreamingService streamingService;
+
+    @BeforeEach
+    void setUp() {
+        // Range handling only looks at the header and the file size
+        streamingService = new StreamingService(null, null, null, null, null, null);
+        ReflectionTestUtils.setField(streamingService, "maxChunkSize", 2 * 1024 * 1024L);
+        ReflectionTestUtils.setField(streamingService, "maxRanges", 8);
+    }
+
+    @Test
+    void noUsableHeaderServesTheWholeFile() {
+        assertThat(streamingService.parseRangeHeader(null, FILE_SIZE)).isNull();
+        assertThat(streamingService.parseRangeHeader("items=0-9", FILE_SIZE)).isNull();
+    }
+
+    @Test
+    void malformedHeadersAreIgnored() {
+        assertThat(streamingService.parseRangeHeader("bytes=abc-", FILE_SIZE)).isNull();
+        assertThat(streamingService.parseRangeHeader("bytes=5", FILE_SIZE)).isNull();
+        assertThat(streamingService.parseRangeHeader("bytes=50-10", FILE_SIZE)).isNull();
+    }
+
+    @Test
+    void closedRange() {
+        assertThat(streamingService.parseRangeHeader("bytes=0-99", FILE_SIZE)).containsExactly(new ByteRange(0, 99));
+    }
+
+    @Test
+    void openEndedRangeRunsToTheEndOfTheFile() {
+        assertThat(streamingService.parseRangeHeader("bytes=500-", FILE_SIZE)).containsExactly(new ByteRange(500, 999));
+    }
+
+    @Test
+    void endPastTheFileIsClamped() {
+        assertThat(streamingService.parseRangeHeader("bytes=900-5000", FILE_SIZE)).containsExactly(new ByteRange(900, 999));
+    }
+
+    @Test
+    void suffixRangeTakesTheLastBytes() {
+        assertThat(streamingService.parseRangeHeader("bytes=-100", FILE_SIZE)).containsExactly(new ByteRange(900, 999));
+        assertThat(streamingService.parseRangeHeader("bytes=-5000", FILE_SIZE)).containsExactly(new ByteRange(0, 999));
+    }
+
+    @Test
+    void overlappingAndAdjacentRangesAreSortedAndMerged() {
+        assertThat(streamingService.parseRangeHeader("bytes=300-399, 50-149,0-99,150-199", FILE_SIZE))
+                .containsExactly(new ByteRange(0, 199), new ByteRange(300, 399));
+    }
+
+    @Test
+    void rangesOutsideTheFileAreDroppedWhenOthersFit() {
+        assertThat(streamingService.parseRangeHeader("bytes=0-9,2000-3000", FILE_SIZE)).containsExactly(new ByteRange(0, 9));
+    }
+
+    @Test
+    void tooManyRangesCollapseToTheirSpan() {
+        ReflectionTestUtils.setField(streamingService, "maxRanges", 2);
+
+        assertThat(streamingService.parseRangeHeader("bytes=0-9,20-29,40-49", FILE_SIZE)).containsExactly(new ByteRange(0, 49));
+    }
+
+    @Test
+    void unsatisfiableRangeReportsTheFileSize() {
+        assertThatThrownBy(() -> streamingService.parseRangeHeader("bytes=1000-2000", FILE_SIZE))
+                .isInstanceOf(RangeNotSatisfiableException.class)
+                .extracting(e -> ((RangeNotSatisfiableException) e).getFileSize())
+                .isEqualTo(FILE_SIZE);
+        assertThatThrownBy(() -> streamingService.parseRangeHeader("bytes=-0", FILE_SIZE))
+                .isInstanceOf(RangeNotSatisfiableException.class);
+    }
+
+    @Test
+    void wholeFileUnderTheCapIsNotPartial() {
+        VideoStreamDTO chunk = chunk(FILE_SIZE, null);
+
+        assertThat(chunk.isPartial()).isFalse();
+        assertThat(chunk.getContentLength()).isEqualTo(FILE_SIZE);
+        assertThat(chunk.getRanges()).containsExactly(new ByteRange(0, 999));
+    }
+
+    @Test
+    void wholeFileOverTheCapBecomesACappedPartial() {
+        ReflectionTestUtils.setField(streamingService, "maxChunkSize", 100L);
+
+        VideoStreamDTO chunk = chunk(FILE_SIZE, null);
+
+        assertThat(chunk.isPartial()).isTrue();
+        assertThat(chunk.getStart()).isZero();
+        assertThat(chunk.getEnd()).isEqualTo(99);
+        assertThat(chunk.getContentLength()).isEqualTo(100);
+    }
+
+    @Test
+    void multipartIsCappedAcrossRanges() {
+        ReflectionTestUtils.setField(streamingService, "maxChunkSize", 150L);
+
+        VideoStreamDTO chunk = chunk(FILE_SIZE, "bytes=0-99,200-299,400-499");
+
+        assertThat(chunk.getRanges()).containsExactly(new ByteRange(0, 99), new ByteRange(200, 249));
+        assertThat(chunk.getContentLength()).isEqualTo(150);
+        assertThat(chunk.isPartial()).isTrue();
+    }
+
+    @Test
+    void emptyFileWithoutRangeHasNoBody() {
+        VideoStreamDTO chunk = chunk(0, null);
+
+        assertThat(chunk.getRanges()).isEmpty();
+        assertThat(chunk.getContentLength()).isZero();
+        assertThat(chunk.isPartial()).isFalse();
+    }
+
+    private VideoStreamDTO chunk(long fileSize, String rangeHeader) {
+        VideoFileMetadata video = VideoFileMetadata.builder()
+                .path(Path.of("film.mp4"))
+                .fileSize(fileSize)
+                .contentType("video/mp4")
+                .build();
+        return streamingService.getFilmChunk(video, rangeHeader);
+    }
+}
@@ -0,0 +1,146 @@
+package com.harsh.metricsPlay.service.analytics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.harsh.metricsPlay.model.events.VideoEventDTO;
+
+class RealTimeAnalyticsServiceTest {
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final RedisScript<List> viewersApplyScript = mock(RedisScript.class);
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final RedisScript<List> viewersReapScript = mock(RedisScript.class);
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final RealTimeAnalyticsService service =
+            new RealTimeAnalyticsService(redisTemplate, messagingTemplate, viewersApplyScript, viewersReapScript);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void batchModeTakesOneRoundTripPerPoll() {
+        when(redisTemplate.getValueSerializer()).thenReturn((RedisSerializer) new StringRedisSerializer());
+        // Counts of the films asked for, then the total
+        when(redisTemplate.execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class), anyList(), any(Object[].class)))
+                .thenReturn(List.of(2L, 2L, 4L));
+        List<VideoEventDTO> poll = poll(100);
+
+        for (VideoEventDTO event : poll) {
+            service.handleProgressEvent(event);
+        }
+        int perRecord = redisCalls();
+        int perRecordBroadcasts = broadcasts();
+
+        clearInvocations(redisTemplate, messagingTemplate);
+        service.handleEvents(poll);
+        int batched = redisCalls();
+        int batchedBroadcasts = broadcasts();
+
+        // One script call per event, against one for the whole poll
+        assertThat(perRecord).isEqualTo(100);
+        assertThat(batched).isEqualTo(1);
+        // Film count and total per event, against one per film and one total per poll
+        assertThat(perRecordBroadcasts).isEqualTo(100 * 2);
+        assertThat(batchedBroadcasts).isEqualTo(2 + 1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reapPassesEveryFilmKeyAndBroadcastsEmptiedFilms() {
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn(new LinkedHashSet<>(List.of(
+                "3".getBytes(StandardCharsets.UTF_8), "12".getBytes(StandardCharsets.UTF_8))));
+        // Film 3 lost a viewer, film 12 was emptied
+        when(redisTemplate.execute(eq(viewersReapScript), any(RedisSerializer.class), any(RedisSerializer.class), anyList(), any(Object[].class)))
+                .thenReturn(List.of(1L, "3", 1L, "12", 0L));
+        ReflectionTestUtils.setField(service, "heartbeatTimeoutSeconds", 60L);
+
+        service.reapStaleViewers();
+
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        verify(redisTemplate).execute(eq(viewersReapScript), any(RedisSerializer.class), any(RedisSerializer.class), keys.capture(), any(Object[].class));
+        assertThat(keys.getValue()).containsExactly("active_films", "total_viewers", "viewer_heartbeats:3", "viewer_heartbeats:12");
+        ArgumentCaptor<Object> updates = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, times(3)).convertAndSend(anyString(), updates.capture());
+        assertThat(updates.getAllValues()).extracting(update -> ((Map<String, Object>) update).get("count"))
+                .containsExactly(1L, 0L, 1L);
+    }
+
+    @Test
+    void readsFilmCountPairsAfterTheTotal() {
+        Map<Long, Long> changed = RealTimeAnalyticsService.changedFilmCounts(List.of(7L, "3", 2L, "12", 0L));
+
+        assertThat(changed).containsExactly(Map.entry(3L, 2L), Map.entry(12L, 0L));
+    }
+
+    @Test
+    void totalOnlyMeansNothingChanged() {
+        assertThat(RealTimeAnalyticsService.changedFilmCounts(List.of(4L))).isEmpty();
+        assertThat(RealTimeAnalyticsService.changedFilmCounts(List.of())).isEmpty();
+        assertThat(RealTimeAnalyticsService.changedFilmCounts(null)).isEmpty();
+    }
+
+    @Test
+    void ignoresADanglingFilmId() {
+        Map<Long, Long> changed = RealTimeAnalyticsService.changedFilmCounts(List.of(1L, "5", 1L, "9"));
+
+        assertThat(changed).containsExactly(Map.entry(5L, 1L));
+    }
+
+    @Test
+    void missingCountReadsAsZero() {
+        List<Object> result = new ArrayList<>(Arrays.asList(0L, "2", null));
+
+        assertThat(RealTimeAnalyticsService.changedFilmCounts(result)).containsExactly(Map.entry(2L, 0L));
+    }
+
+    private List<VideoEventDTO> poll(int size) {
+        List<VideoEventDTO> events = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            VideoEventDTO event = new VideoEventDTO();
+            event.setEventType("progress");
+            event.setFilmId((long) (i % 2) + 1);
+            event.setUserId("viewer-" + (i % 4));
+            events.add(event);
+        }
+        return Collections.unmodifiableList(events);
+    }
+
+    // Round trips to Redis: every call on the template except reading its serializer
+    private int redisCalls() {
+        return (int) mockingDetails(redisTemplate).getInvocations().stream()
+                .filter(invocation -> !invocation.getMethod().getName().equals("getValueSerializer"))
+                .count();
+    }
+
+    private int broadcasts() {
+        return mockingDetails(messagingTemplate).getInvocations().size();
+    }
+}
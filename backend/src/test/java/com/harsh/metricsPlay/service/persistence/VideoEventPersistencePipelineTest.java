@@ -0,0 +1,115 @@
+package com.harsh.metricsPlay.service.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.harsh.metricsPlay.model.entity.VideoEvent;
+
+class VideoEventPersistencePipelineTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    // Size of every batch handed to the driver, in order
+    private final List<Integer> batches = new CopyOnWriteArrayList<>();
+    private VideoEventPersistencePipeline pipeline;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    void flushesAsSoonAsABatchIsFull() {
+        start(3, 60_000);
+
+        assertThat(submit(3)).succeedsWithin(Duration.ofSeconds(2));
+        assertThat(batches).containsExactly(3);
+    }
+
+    @Test
+    void flushesAPartialBatchOnceTheIntervalEnds() {
+        start(1000, 50);
+
+        assertThat(submit(2)).succeedsWithin(Duration.ofSeconds(2));
+        assertThat(batches).containsExactly(2);
+    }
+
+    @Test
+    void holdsAPartialBatchUntilTheIntervalEnds() {
+        start(1000, 60_000);
+
+        CompletableFuture<Void> written = submit(2);
+
+        verify(jdbcTemplate, after(300).never()).batchUpdate(anyString(), any(Collection.class), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        assertThat(written).isNotDone();
+    }
+
+    @Test
+    void writesWhatIsStillQueuedOnShutdown() throws InterruptedException {
+        start(1000, 60_000);
+        CompletableFuture<Void> written = submit(5);
+
+        pipeline.shutdown();
+        pipeline = null;
+
+        assertThat(written).isCompleted();
+        assertThat(batches).containsExactly(5);
+    }
+
+    private void start(int batchSize, long flushIntervalMs) {
+        // Every nextval hands out a fresh block of ids
+        AtomicLong sequence = new AtomicLong();
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class)))
+                .thenAnswer(invocation -> sequence.addAndGet(VideoEvent.ID_ALLOCATION_SIZE));
+        doAnswer(invocation -> {
+            batches.add(invocation.<Collection<?>>getArgument(1).size());
+            return new int[0][];
+        }).when(jdbcTemplate).batchUpdate(anyString(), any(Collection.class), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+
+        pipeline = new VideoEventPersistencePipeline(jdbcTemplate);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 100);
+        ReflectionTestUtils.setField(pipeline, "batchSize", batchSize);
+        ReflectionTestUtils.setField(pipeline, "flushIntervalMs", flushIntervalMs);
+        ReflectionTestUtils.setField(pipeline, "offerTimeoutMs", 100L);
+        pipeline.start();
+    }
+
+    private CompletableFuture<Void> submit(int count) {
+        List<VideoEvent> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            events.add(VideoEvent.builder()
+                    .eventId("event-" + i)
+                    .eventType("progress")
+                    .filmId(1L)
+                    .username("viewer")
+                    .sessionId("session-1")
+                    .timestamp(LocalDateTime.now())
+                    .build());
+        }
+        return pipeline.submit(events);
+    }
+}
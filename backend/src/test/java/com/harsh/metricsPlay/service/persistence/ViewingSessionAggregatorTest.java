@@ -0,0 +1,127 @@
+package com.harsh.metricsPlay.service.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.OptionalDouble;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.harsh.metricsPlay.model.entity.ViewingSession;
+import com.harsh.metricsPlay.model.events.VideoEventDTO;
+import com.harsh.metricsPlay.repository.ViewingSessionRepository;
+
+class ViewingSessionAggregatorTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 20, 0);
+
+    private ViewingSessionRepository sessionRepository;
+    private ViewingSessionAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        sessionRepository = mock(ViewingSessionRepository.class);
+        aggregator = new ViewingSessionAggregator(sessionRepository, mock(JdbcTemplate.class));
+    }
+
+    @Test
+    void reloadedPlayingSessionKeepsCreditingProgress() {
+        when(sessionRepository.findById("s1")).thenReturn(Optional.of(storedSession("s1", Boolean.TRUE)));
+
+        OptionalDouble watched = aggregator.apply(event("e2", "s1", "progress", T0.plusSeconds(15), 115.0));
+
+        assertThat(watched).hasValue(15.0);
+    }
+
+    @Test
+    void reloadedPausedSessionCreditsNothingUntilPlay() {
+        when(sessionRepository.findById("s1")).thenReturn(Optional.of(storedSession("s1", Boolean.FALSE)));
+
+        OptionalDouble watched = aggregator.apply(event("e2", "s1", "progress", T0.plusSeconds(15), 115.0));
+
+        assertThat(watched).hasValue(0.0);
+    }
+
+    @Test
+    void rowFromBeforeThePlayingColumnCountsAsRunningUnlessCompleted() {
+        when(sessionRepository.findById("s1")).thenReturn(Optional.of(storedSession("s1", null)));
+
+        OptionalDouble watched = aggregator.apply(event("e2", "s1", "progress", T0.plusSeconds(15), 115.0));
+
+        assertThat(watched).hasValue(15.0);
+    }
+
+    @Test
+    void newSessionStartsPaused() {
+        when(sessionRepository.findById("s2")).thenReturn(Optional.empty());
+
+        aggregator.apply(event("e1", "s2", "loaded", T0, 0.0));
+        OptionalDouble watched = aggregator.apply(event("e2", "s2", "progress", T0.plusSeconds(15), 15.0));
+
+        assertThat(watched).hasValue(0.0);
+    }
+
+    @Test
+    void redeliveredPollIsNotCountedTwice() {
+        when(sessionRepository.findById("s1")).thenReturn(Optional.of(storedSession("s1", Boolean.TRUE)));
+        VideoEventDTO first = event("e2", "s1", "progress", T0.plusSeconds(15), 115.0);
+        VideoEventDTO second = event("e3", "s1", "progress", T0.plusSeconds(30), 130.0);
+
+        assertThat(aggregator.apply(first)).hasValue(15.0);
+        assertThat(aggregator.apply(second)).hasValue(15.0);
+        assertThat(aggregator.apply(first)).isEmpty();
+        assertThat(aggregator.apply(second)).isEmpty();
+    }
+
+    @Test
+    void redeliveryOfTheStoredLastEventIsSkippedAfterReload() {
+        ViewingSession stored = storedSession("s1", Boolean.TRUE);
+        stored.setLastEventId("e1");
+        when(sessionRepository.findById("s1")).thenReturn(Optional.of(stored));
+
+        assertThat(aggregator.apply(event("e1", "s1", "progress", T0, 100.0))).isEmpty();
+    }
+
+    @Test
+    void pauseAndPlaySharingATimestampBothApply() {
+        when(sessionRepository.findById("s1")).thenReturn(Optional.of(storedSession("s1", Boolean.TRUE)));
+
+        assertThat(aggregator.apply(event("e2", "s1", "pause", T0.plusSeconds(10), 110.0))).hasValue(10.0);
+        assertThat(aggregator.apply(event("e3", "s1", "play", T0.plusSeconds(10), 110.0))).hasValue(0.0);
+        OptionalDouble watched = aggregator.apply(event("e4", "s1", "progress", T0.plusSeconds(25), 125.0));
+
+        assertThat(watched).hasValue(15.0);
+    }
+
+    private static ViewingSession storedSession(String sessionId, Boolean playing) {
+        return ViewingSession.builder()
+                .sessionId(sessionId)
+                .filmId(1L)
+                .username("viewer")
+                .startTime(T0.minusMinutes(5))
+                .totalWatchTime(100.0)
+                .completed(false)
+                .lastPosition(100.0)
+                .lastEventTime(T0)
+                .playing(playing)
+                .build();
+    }
+
+    private static VideoEventDTO event(String eventId, String sessionId, String type, LocalDateTime at, Double position) {
+        VideoEventDTO event = new VideoEventDTO();
+        event.setEventId(eventId);
+        event.setSessionId(sessionId);
+        event.setUserId("viewer");
+        event.setFilmId(1L);
+        event.setEventType(type);
+        event.setTimestamp(at);
+        event.setCurrentTime(position);
+        event.setDuration(600.0);
+        return event;
+    }
+}
@@ -0,0 +1,233 @@
+package com.harsh.metricsPlay.service.streaming;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class Mp4SampleIndexTest {
+
+    private static final int TIMESCALE = 1000;
+
+    @TempDir
+    Path dir;
+
+    /*
+     * 10 samples of 100 ticks (0.1s), sizes 10, 20, ..., 100; chunks 1-2 hold 3 samples and
+     * chunk 3 holds 4, at 1000, 5000 and 9000. Keyframes are samples 1, 4 and 8, so:
+     *   sample 1 -> chunk 1, first sample:  0.0s @ 1000
+     *   sample 4 -> chunk 2, first sample:  0.3s @ 5000
+     *   sample 8 -> chunk 3, second sample: 0.7s @ 9000 + 70
+     */
+    @Test
+    void mapsKeyframesToTheirChunkOffsets() throws IOException {
+        Mp4SampleIndex index = Mp4SampleIndex.parse(write(moov(
+                mvhd(TIMESCALE, 1000),
+                trak("vide", stbl(
+                        stts(new int[][] {{10, 100}}),
+                        stss(1, 4, 8),
+                        stsc(new int[][] {{1, 3}, {3, 4}}),
+                        stsz(0, 10, 20, 30, 40, 50, 60, 70, 80, 90, 100),
+                        stco(1000, 5000, 9000))))));
+
+        assertThat(index.getDurationSeconds()).isEqualTo(1.0);
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.getKeyframeTime(0)).isCloseTo(0.0, within(1e-9));
+        assertThat(index.getKeyframeOffset(0)).isEqualTo(1000);
+        assertThat(index.getKeyframeTime(1)).isCloseTo(0.3, within(1e-9));
+        assertThat(index.getKeyframeOffset(1)).isEqualTo(5000);
+        assertThat(index.getKeyframeTime(2)).isCloseTo(0.7, within(1e-9));
+        assertThat(index.getKeyframeOffset(2)).isEqualTo(9070);
+    }
+
+    @Test
+    void seekLandsOnTheKeyframeAtOrBefore() throws IOException {
+        Mp4SampleIndex index = Mp4SampleIndex.parse(write(moov(
+                mvhd(TIMESCALE, 1000),
+                trak("vide", stbl(
+                        stts(new int[][] {{10, 100}}),
+                        stss(1, 4, 8),
+                        stsc(new int[][] {{1, 3}, {3, 4}}),
+                        stsz(0, 10, 20, 30, 40, 50, 60, 70, 80, 90, 100),
+                        stco(1000, 5000, 9000))))));
+
+        assertThat(index.keyframeAtOrBefore(-1)).isZero();
+        assertThat(index.keyframeAtOrBefore(0.0)).isZero();
+        assertThat(index.keyframeAtOrBefore(0.29)).isZero();
+        assertThat(index.keyframeAtOrBefore(0.3)).isEqualTo(1);
+        assertThat(index.keyframeAtOrBefore(0.5)).isEqualTo(1);
+        assertThat(index.keyframeAtOrBefore(0.7)).isEqualTo(2);
+        assertThat(index.keyframeAtOrBefore(60)).isEqualTo(2);
+    }
+
+    @Test
+    void withoutStssEverySampleIsAKeyframe() throws IOException {
+        // Two stts runs (2 x 100 ticks then 2 x 50), uniform 25-byte samples, 64-bit chunk offsets
+        Mp4SampleIndex index = Mp4SampleIndex.parse(write(moov(
+                trak("vide", stbl(
+                        stts(new int[][] {{2, 100}, {2, 50}}),
+                        stsc(new int[][] {{1, 2}}),
+                        stszUniform(25, 4),
+                        co64(1L << 32, (1L << 32) + 4096))))));
+
+        assertThat(index.size()).isEqualTo(4);
+        assertThat(index.getKeyframeOffset(1)).isEqualTo((1L << 32) + 25);
+        assertThat(index.getKeyframeOffset(2)).isEqualTo((1L << 32) + 4096);
+        assertThat(index.getKeyframeTime(3)).isCloseTo(0.25, within(1e-9));
+        // No mvhd: the duration falls back to the sum of the stts runs
+        assertThat(index.getDurationSeconds()).isCloseTo(0.3, within(1e-9));
+    }
+
+    @Test
+    void skipsNonVideoTracks() throws IOException {
+        Mp4SampleIndex index = Mp4SampleIndex.parse(write(moov(
+                mvhd(TIMESCALE, 1000),
+                trak("soun", stbl(
+                        stts(new int[][] {{1, 100}}),
+                        stsc(new int[][] {{1, 1}}),
+                        stszUniform(10, 1),
+                        stco(777))),
+                trak("vide", stbl(
+                        stts(new int[][] {{1, 100}}),
+                        stsc(new int[][] {{1, 1}}),
+                        stszUniform(10, 1),
+                        stco(4242))))));
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.getKeyframeOffset(0)).isEqualTo(4242);
+    }
+
+    @Test
+    void fileWithoutMoovOrVideoHasNoIndex() throws IOException {
+        assertThat(Mp4SampleIndex.parse(write(box("mdat", new byte[32])))).isNull();
+        assertThat(Mp4SampleIndex.parse(write(moov(mvhd(TIMESCALE, 1000), trak("soun", stbl(
+                stts(new int[][] {{1, 100}}), stsc(new int[][] {{1, 1}}), stszUniform(10, 1), stco(8)))))))
+                .isNull();
+    }
+
+    @Test
+    void incompleteSampleTableIsAnError() {
+        assertThatThrownBy(() -> Mp4SampleIndex.parse(write(moov(trak("vide", stbl(
+                stts(new int[][] {{1, 100}}), stsc(new int[][] {{1, 1}}), stszUniform(10, 1)))))))
+                .isInstanceOf(IOException.class);
+    }
+
+    private Path write(byte[]... topLevel) throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.writeBytes(box("ftyp", "isom".getBytes(StandardCharsets.US_ASCII), new byte[4]));
+        for (byte[] box : topLevel) {
+            file.writeBytes(box);
+        }
+        Path path = Files.createTempFile(dir, "film", ".mp4");
+        Files.write(path, file.toByteArray());
+        return path;
+    }
+
+    private static byte[] moov(byte[]... children) {
+        return box("moov", children);
+    }
+
+    private static byte[] trak(String handler, byte[] stbl) {
+        byte[] hdlr = box("hdlr", ints(0, 0), handler.getBytes(StandardCharsets.US_ASCII), new byte[12]);
+        return box("trak", box("mdia", mdhd(TIMESCALE), hdlr, box("minf", stbl)));
+    }
+
+    private static byte[] stbl(byte[]... tables) {
+        return box("stbl", tables);
+    }
+
+    // version 0: version/flags, creation, modification, timescale, duration
+    private static byte[] mvhd(int timescale, int duration) {
+        return box("mvhd", ints(0, 0, 0, timescale, duration), new byte[80]);
+    }
+
+    private static byte[] mdhd(int timescale) {
+        return box("mdhd", ints(0, 0, 0, timescale, 0, 0));
+    }
+
+    private static byte[] stts(int[][] runs) {
+        ByteBuffer body = full(runs.length, runs.length * 8);
+        for (int[] run : runs) {
+            body.putInt(run[0]).putInt(run[1]);
+        }
+        return box("stts", body.array());
+    }
+
+    private static byte[] stss(int... samples) {
+        ByteBuffer body = full(samples.length, samples.length * 4);
+        for (int sample : samples) {
+            body.putInt(sample);
+        }
+        return box("stss", body.array());
+    }
+
+    private static byte[] stsc(int[][] entries) {
+        ByteBuffer body = full(entries.length, entries.length * 12);
+        for (int[] entry : entries) {
+            body.putInt(entry[0]).putInt(entry[1]).putInt(1);
+        }
+        return box("stsc", body.array());
+    }
+
+    private static byte[] stsz(int uniformSize, int... sizes) {
+        ByteBuffer body = ByteBuffer.allocate(12 + sizes.length * 4).putInt(0).putInt(uniformSize).putInt(sizes.length);
+        for (int size : sizes) {
+            body.putInt(size);
+        }
+        return box("stsz", body.array());
+    }
+
+    private static byte[] stszUniform(int size, int count) {
+        return box("stsz", ints(0, size, count));
+    }
+
+    private static byte[] stco(int... offsets) {
+        ByteBuffer body = full(offsets.length, offsets.length * 4);
+        for (int offset : offsets) {
+            body.putInt(offset);
+        }
+        return box("stco", body.array());
+    }
+
+    private static byte[] co64(long... offsets) {
+        ByteBuffer body = full(offsets.length, offsets.length * 8);
+        for (long offset : offsets) {
+            body.putLong(offset);
+        }
+        return box("co64", body.array());
+    }
+
+    // Full box header (version/flags) and entry count, with room for the entries
+    private static ByteBuffer full(int entryCount, int entryBytes) {
+        return ByteBuffer.allocate(8 + entryBytes).putInt(0).putInt(entryCount);
+    }
+
+    private static byte[] ints(int... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 4);
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+
+    private static byte[] box(String type, byte[]... parts) {
+        int size = 8;
+        for (byte[] part : parts) {
+            size += part.length;
+        }
+        ByteBuffer box = ByteBuffer.allocate(size).putInt(size).put(type.getBytes(StandardCharsets.US_ASCII));
+        for (byte[] part : parts) {
+            box.put(part);
+        }
+        return box.array();
+    }
+}